@@ -0,0 +1,15 @@
+attribute vec4 a_position;
+attribute vec4 a_color;
+attribute vec2 a_texCoord0;
+varying vec4 v_color;
+varying vec2 v_texCoords;
+uniform mat4 u_proj;
+uniform mat4 u_trans;
+uniform vec2 u_offset;
+
+void main()
+{
+	v_color = a_color;
+	v_texCoords = a_texCoord0;
+	gl_Position = u_proj * u_trans * (a_position + vec4(u_offset, 0.0, 0.0));
+}
\ No newline at end of file
@@ -6,6 +6,7 @@ import com.badlogic.gdx.graphics.GL20;
 import com.lashleygdx.game.world.WorldController;
 import com.lashleygdx.game.world.WorldRenderer;
 import com.lashleygdx.game.util.GamePreferences;
+import com.lashleygdx.game.world.Assets;
 
 /**
  * game screen displayed while playing
@@ -35,6 +36,8 @@ public class GameScreen extends AbstractGameScreen
 	@Override
 	public void render(float deltaTime)
 	{
+		// keep loading the level prefetched for a restart
+		Assets.instance.update();
 		// do not update game world while paused
 		if (!paused)
 		{
@@ -65,6 +65,9 @@ public class MenuScreen extends AbstractGameScreen
 	private CheckBox chkShowFpsCounter;
 
 	private CheckBox chkUseMonochromeShader;
+	private CheckBox chkEndlessMode;
+	private CheckBox chkPhysicsThread;
+	private CheckBox chkBox2dBunny;
 
 	// debug
 	private final float DEBUG_REBUILD_INTERVAL = 5.0f;
@@ -98,6 +101,8 @@ public class MenuScreen extends AbstractGameScreen
 				rebuildStage();
 			}
 		}
+		// keep loading the prefetched level
+		Assets.instance.update();
 		stage.act(deltaTime);
 		stage.draw();
 //		Table.drawDebug(stage);  doesnt exist anymore
@@ -122,6 +127,8 @@ public class MenuScreen extends AbstractGameScreen
 		stage = new Stage(new StretchViewport(Constants.VIEWPORT_GUI_WIDTH, Constants.VIEWPORT_GUI_HEIGHT));
 		Gdx.input.setInputProcessor(stage);
 		rebuildStage();
+		// build the level in the background so pressing play does not stall
+		Assets.instance.prefetchLevel(Constants.LEVEL_01);
 	}
 
 	/**
@@ -338,6 +345,9 @@ public class MenuScreen extends AbstractGameScreen
 		onCharSkinSelected(prefs.charSkin);
 		chkShowFpsCounter.setChecked(prefs.showFpsCounter);
 		chkUseMonochromeShader.setChecked(prefs.useMonochromeShader);
+		chkEndlessMode.setChecked(prefs.endlessMode);
+		chkPhysicsThread.setChecked(prefs.physicsThread);
+		chkBox2dBunny.setChecked(prefs.box2dBunny);
 	}
 
 	/**
@@ -353,6 +363,9 @@ public class MenuScreen extends AbstractGameScreen
 		prefs.charSkin = selCharSkin.getSelectedIndex();
 		prefs.showFpsCounter = chkShowFpsCounter.isChecked();
 		prefs.useMonochromeShader = chkUseMonochromeShader.isChecked();
+		prefs.endlessMode = chkEndlessMode.isChecked();
+		prefs.physicsThread = chkPhysicsThread.isChecked();
+		prefs.box2dBunny = chkBox2dBunny.isChecked();
 		prefs.save();
 	}
 
@@ -450,7 +463,7 @@ public class MenuScreen extends AbstractGameScreen
 	}
 
 	/**
-	 * construct options menu debug section (fps display)
+	 * construct options menu debug section (fps display, shader, endless mode, physics thread)
 	 * @return tbl
 	 */
 	private Table buildOptWinDebug()
@@ -472,6 +485,21 @@ public class MenuScreen extends AbstractGameScreen
 		tbl.add(new Label("Use Monochrome Shader", skinLibgdx));
 		tbl.add(chkUseMonochromeShader);
 		tbl.row();
+		// + checkbox, "Endless Mode" label
+		chkEndlessMode = new CheckBox("", skinLibgdx);
+		tbl.add(new Label("Endless Mode", skinLibgdx));
+		tbl.add(chkEndlessMode);
+		tbl.row();
+		// + checkbox, "Physics Thread" label
+		chkPhysicsThread = new CheckBox("", skinLibgdx);
+		tbl.add(new Label("Physics Thread", skinLibgdx));
+		tbl.add(chkPhysicsThread);
+		tbl.row();
+		// + checkbox, "Box2D Bunny" label
+		chkBox2dBunny = new CheckBox("", skinLibgdx);
+		tbl.add(new Label("Box2D Bunny", skinLibgdx));
+		tbl.add(chkBox2dBunny);
+		tbl.row();
 		return tbl;
 	}
 
@@ -19,6 +19,8 @@ public class CameraHelper
 	private final float FOLLOW_SPEED = 4.0f;
 
 	private Vector2 position;
+	// position at the last simulation tick, the camera is drawn between it and the current one
+	private Vector2 lastPosition;
 	private float zoom;
 	private AbstractGameObject target;
 
@@ -29,6 +31,7 @@ public class CameraHelper
 	public CameraHelper ()
 	{
 		position = new Vector2();
+		lastPosition = new Vector2();
 		zoom = 1.0f;
 	}
 
@@ -61,6 +64,24 @@ public class CameraHelper
 		this.position.set(x, y);
 	}
 
+	/**
+	 * move the camera together with its last position, so the move is not interpolated (world origin shift)
+	 * @param amountX
+	 */
+	public void translateX (float amountX)
+	{
+		position.x += amountX;
+		lastPosition.x += amountX;
+	}
+
+	/**
+	 * remember the position before a simulation tick
+	 */
+	public void savePosition ()
+	{
+		lastPosition.set(position);
+	}
+
 	/**
 	 * get camera position
 	 * @return position
@@ -135,13 +156,14 @@ public class CameraHelper
 	}
 
 	/**
-	 * refresh camera and zoom levels
+	 * refresh camera and zoom levels, the camera is placed between the last two simulation ticks
 	 * @param camera
+	 * @param alpha 0 for the last tick, 1 for the current one
 	 */
-	public void applyTo (OrthographicCamera camera)
+	public void applyTo (OrthographicCamera camera, float alpha)
 	{
-		camera.position.x = position.x;
-		camera.position.y = position.y;
+		camera.position.x = lastPosition.x + (position.x - lastPosition.x) * alpha;
+		camera.position.y = lastPosition.y + (position.y - lastPosition.y) * alpha;
 		camera.zoom = zoom;
 		camera.update();
 	}
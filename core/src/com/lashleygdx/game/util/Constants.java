@@ -24,6 +24,37 @@ public class Constants
 	// Location of image file for level 01
 	public static final String LEVEL_01 = "levels/level-01.png";
 
+	// Levels at least this wide are streamed in chunks around the camera
+	public static final int LEVEL_STREAMING_MIN_WIDTH = 512;
+
+	// Width of a streamed level chunk in level cells
+	public static final int LEVEL_CHUNK_WIDTH = 32;
+
+	// Width of a collision grid cell in level cells, divides the chunk width
+	public static final int COLLISION_CELL_WIDTH = 4;
+
+	// Streamed chunks kept behind / ahead of the camera chunk
+	public static final int LEVEL_CHUNKS_BEHIND = 1;
+	public static final int LEVEL_CHUNKS_AHEAD = 2;
+
+	// Bottom of the lowest row of Tiled maps, tiles and the objects placed on them are one world unit wide
+	public static final float TILED_MAP_BOTTOM = -2.5f;
+
+	// Rows of generated endless levels
+	public static final int ENDLESS_LEVEL_HEIGHT = 12;
+
+	// The world origin is moved under the camera once it is this far away, float precision drops with distance
+	public static final float ORIGIN_SHIFT_DISTANCE = 1024;
+
+	// Rocks are simulated up to this far beyond the visible part of the level, the others sleep
+	public static final float ACTIVE_REGION_MARGIN = 16;
+
+	// Simulation ticks per second, the game world always advances by 1 / SIMULATION_TICK_RATE
+	public static final int SIMULATION_TICK_RATE = 60;
+
+	// Most ticks simulated in one frame, longer frames slow the game down instead of piling up ticks
+	public static final int SIMULATION_MAX_TICKS_PER_FRAME = 5;
+
 	// Amount of extra lives at level start
 	public static final int LIVES_START = 3;
 
@@ -45,7 +76,17 @@ public class Constants
 	public static final String PREFERENCES = "canyonbunny.prefs";
 
 	// number of carrots to spawn
-	public static final int CARROTS_SPAWN_MAX = 100;
+	public static final int CARROTS_SPAWN_MAX = 10000;
+
+	// carrots spawned per simulation tick, the rain is spread over several ticks
+	public static final int CARROTS_SPAWN_PER_TICK = 50;
+
+	// most carrots falling at once, the rain waits for carrots to come to rest
+	public static final int CARROTS_FALLING_MAX = 500;
+
+	// carrots moving slower than this (relative to their rock) for CARROTS_BAKE_TIME are baked into sprites
+	public static final float CARROTS_REST_SPEED = 0.05f;
+	public static final float CARROTS_BAKE_TIME = 0.5f;
 
 	// spawn radius for carrots
 	public static final float CARROTS_SPAWN_RADIUS = 3.5f;
@@ -56,5 +97,7 @@ public class Constants
 	//shader
 	public static final String shaderMonochromeVertex = "shaders/monochrome.vs";
 	public static final String shaderMonochromeFragment = "shaders/monochrome.fs";
+	public static final String shaderMonochromeCacheVertex = "shaders/monochrome_cache.vs";
+	public static final String shaderStaticGeometryVertex = "shaders/static_geometry.vs";
 
 }
\ No newline at end of file
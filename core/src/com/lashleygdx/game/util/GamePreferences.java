@@ -22,6 +22,9 @@ public class GamePreferences
 	public boolean showFpsCounter;
 
 	public boolean useMonochromeShader;
+	public boolean endlessMode;
+	public boolean physicsThread;
+	public boolean box2dBunny;
 
 	private Preferences prefs;
 
@@ -45,6 +48,9 @@ public class GamePreferences
 		charSkin = MathUtils.clamp(prefs.getInteger("charSkin", 0), 0, 2);
 		showFpsCounter = prefs.getBoolean("showFpsCounter", false);
 		useMonochromeShader = prefs.getBoolean("useMonochromeShader", false);
+		endlessMode = prefs.getBoolean("endlessMode", false);
+		physicsThread = prefs.getBoolean("physicsThread", false);
+		box2dBunny = prefs.getBoolean("box2dBunny", false);
 	}
 
 	/**
@@ -59,6 +65,9 @@ public class GamePreferences
 		prefs.putInteger("charSkin", charSkin);
 		prefs.putBoolean("showFpsCounter",  showFpsCounter);
 		prefs.putBoolean("useMonochromeShader",  useMonochromeShader);
+		prefs.putBoolean("endlessMode", endlessMode);
+		prefs.putBoolean("physicsThread", physicsThread);
+		prefs.putBoolean("box2dBunny", box2dBunny);
 		prefs.flush();
 	}
 }
\ No newline at end of file
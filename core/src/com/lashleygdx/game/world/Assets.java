@@ -10,11 +10,20 @@ import com.lashleygdx.game.util.Constants;
 import com.badlogic.gdx.graphics.g2d.TextureAtlas.AtlasRegion;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.Texture.TextureFilter;
+import com.badlogic.gdx.graphics.Texture.TextureWrap;
+import com.badlogic.gdx.graphics.TextureData;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.BitmapFont.BitmapFontData;
 import com.badlogic.gdx.audio.Music;
 import com.badlogic.gdx.audio.Sound;
 import com.badlogic.gdx.graphics.g2d.Animation;
 import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ObjectSet;
+import com.badlogic.gdx.assets.loaders.ParticleEffectLoader.ParticleEffectParameter;
+import com.badlogic.gdx.assets.loaders.resolvers.InternalFileHandleResolver;
+import com.badlogic.gdx.graphics.g2d.ParticleEffect;
 
 
 /**
@@ -43,10 +52,15 @@ public class Assets implements Disposable, AssetErrorListener
 	public AssetFeather feather;
 	public AssetLevelDecoration levelDecoration;
 
+	public AssetParticles particles;
+
 	public AssetFonts fonts;
 	public AssetSounds sounds;
 	public AssetMusic music;
 
+	// levels queued on or loaded by the asset manager
+	private ObjectSet<String> requestedLevels = new ObjectSet<String>();
+
 	/**
 	 * fonts used in the game
 	 * @author Chris Lashley
@@ -63,17 +77,16 @@ public class Assets implements Disposable, AssetErrorListener
 		public AssetFonts()
 		{
 			// create three fonts using Libgdx 15px bitmap font
+			// they share one texture, text in any of them is drawn without switching textures
 			defaultSmall = new BitmapFont (Gdx.files.internal("images/arial-15.fnt"), true);
-			defaultNormal = new BitmapFont (Gdx.files.internal("images/arial-15.fnt"), true);
-			defaultBig = new BitmapFont (Gdx.files.internal("images/arial-15.fnt"), true);
+			defaultNormal = new BitmapFont (new BitmapFontData(Gdx.files.internal("images/arial-15.fnt"), true), defaultSmall.getRegion(), true);
+			defaultBig = new BitmapFont (new BitmapFontData(Gdx.files.internal("images/arial-15.fnt"), true), defaultSmall.getRegion(), true);
 			//set font sizes
 			defaultSmall.getData().setScale(0.75f);
 			defaultNormal.getData().setScale(1.0f);
 			defaultBig.getData().setScale(2.0f);
 			// enable linear texture filtering for smooth fonts
 			defaultSmall.getRegion().getTexture().setFilter(TextureFilter.Linear, TextureFilter.Linear);
-			defaultNormal.getRegion().getTexture().setFilter(TextureFilter.Linear, TextureFilter.Linear);
-			defaultBig.getRegion().getTexture().setFilter(TextureFilter.Linear, TextureFilter.Linear);
 		}
 	}
 
@@ -113,6 +126,20 @@ public class Assets implements Disposable, AssetErrorListener
 		}
 	}
 
+	/**
+	 * particle effect assets
+	 * @author Chris Lashley
+	 */
+	public class AssetParticles
+	{
+		public final ParticleEffect dust;
+
+		public AssetParticles (AssetManager am)
+		{
+			dust = am.get("particles/dust.pfx", ParticleEffect.class);
+		}
+	}
+
 	/**
 	 * create an assetmanager
 	 * @param assetManager
@@ -131,6 +158,13 @@ public class Assets implements Disposable, AssetErrorListener
 		assetManager.load("sounds/pickup_feather.wav", Sound.class);
 		assetManager.load("sounds/live_lost.wav", Sound.class);
 		assetManager.load("music/keith303_-_brand_new_highscore.mp3", Music.class);
+		// load particles
+		ParticleEffectParameter particleParameter = new ParticleEffectParameter();
+		particleParameter.imagesDir = Gdx.files.internal("particles");
+		assetManager.load("particles/dust.pfx", ParticleEffect.class, particleParameter);
+		// levels are built on the loader thread
+		assetManager.setLoader(Level.class, new LevelLoader(new InternalFileHandleResolver()));
+		requestedLevels.clear();
 		// start loading assets and wait until finished
 		assetManager.finishLoading();
 
@@ -157,6 +191,40 @@ public class Assets implements Disposable, AssetErrorListener
 		levelDecoration = new AssetLevelDecoration(atlas);
 		sounds = new AssetSounds(assetManager);
 		music = new AssetMusic(assetManager);
+		particles = new AssetParticles(assetManager);
+	}
+
+	/**
+	 * start loading a level in the background
+	 * @param filename
+	 */
+	public void prefetchLevel (String filename)
+	{
+		if (requestedLevels.contains(filename)) return;
+		requestedLevels.add(filename);
+		assetManager.load(filename, Level.class);
+	}
+
+	/**
+	 * get a level from the asset manager, waiting for it if it is still loading
+	 * the level stays loaded (with the tile set textures of Tiled maps) and is reset for every new game
+	 * @param filename
+	 * @return level
+	 */
+	public Level getLevel (String filename)
+	{
+		prefetchLevel(filename);
+		assetManager.finishLoadingAsset(filename);
+		return assetManager.get(filename, Level.class);
+	}
+
+	/**
+	 * continue loading queued assets, call once per frame
+	 * @return true if all assets are loaded
+	 */
+	public boolean update ()
+	{
+		return assetManager.update();
 	}
 
 	/**
@@ -169,6 +237,7 @@ public class Assets implements Disposable, AssetErrorListener
 		fonts.defaultSmall.dispose();
 		fonts.defaultNormal.dispose();
 		fonts.defaultBig.dispose();
+		levelDecoration.mountains.dispose();
 	}
 
 	/**
@@ -293,6 +362,8 @@ public class Assets implements Disposable, AssetErrorListener
 		public final AtlasRegion cloud03;
 		public final AtlasRegion mountainLeft;
 		public final AtlasRegion mountainRight;
+		// both mountains side by side in a texture of their own, it repeats so any stretch of mountains is one quad
+		public final Texture mountains;
 		public final AtlasRegion waterOverlay;
 		public final AtlasRegion carrot;
 		public final AtlasRegion goal;
@@ -304,9 +375,54 @@ public class Assets implements Disposable, AssetErrorListener
 			cloud03 = atlas.findRegion("cloud03");
 			mountainLeft = atlas.findRegion("mountain_left");
 			mountainRight = atlas.findRegion("mountain_right");
+			mountains = createRepeatingTexture(mountainLeft, mountainRight);
 			waterOverlay = atlas.findRegion("water_overlay");
 			carrot = atlas.findRegion("carrot");
 			goal = atlas.findRegion("goal");
 		}
+
+		/**
+		 * copy atlas regions side by side into a texture that repeats horizontally
+		 * atlas regions can't repeat, and textures only repeat everywhere at power of two sizes, so the regions are scaled to one
+		 * @param regions
+		 * @return texture, disposed with the assets
+		 */
+		private Texture createRepeatingTexture (AtlasRegion... regions)
+		{
+			TextureData data = regions[0].getTexture().getTextureData();
+			if (!data.isPrepared()) data.prepare();
+			Pixmap page = data.consumePixmap();
+
+			int width = 0;
+			int height = 0;
+			for (AtlasRegion region : regions)
+			{
+				width += region.getRegionWidth();
+				height = Math.max(height, region.getRegionHeight());
+			}
+			int potWidth = MathUtils.nextPowerOfTwo(width);
+			int potHeight = MathUtils.nextPowerOfTwo(height);
+			Pixmap pixmap = new Pixmap(potWidth, potHeight, Pixmap.Format.RGBA8888);
+			// copy the pixels as they are, transparency included
+			Pixmap.Blending blending = Pixmap.getBlending();
+			Pixmap.setBlending(Pixmap.Blending.None);
+			int x = 0;
+			for (AtlasRegion region : regions)
+			{
+				int dstX = x * potWidth / width;
+				int dstWidth = (x + region.getRegionWidth()) * potWidth / width - dstX;
+				pixmap.drawPixmap(page, region.getRegionX(), region.getRegionY(), region.getRegionWidth(), region.getRegionHeight(),
+						dstX, 0, dstWidth, potHeight);
+				x += region.getRegionWidth();
+			}
+			Pixmap.setBlending(blending);
+			if (data.disposePixmap()) page.dispose();
+
+			Texture texture = new Texture(pixmap);
+			pixmap.dispose();
+			texture.setFilter(TextureFilter.Linear, TextureFilter.Linear);
+			texture.setWrap(TextureWrap.Repeat, TextureWrap.ClampToEdge);
+			return texture;
+		}
 	}
 }
\ No newline at end of file
@@ -0,0 +1,169 @@
+package com.lashleygdx.game.world;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.IntMap;
+import com.badlogic.gdx.utils.ObjectIntMap;
+import com.badlogic.gdx.utils.Pool;
+import com.lashleygdx.game.world.objects.AbstractGameObject;
+
+/**
+ * uniform grid for collision queries: objects are filed under every cell their bounds reach,
+ * so a query only looks at the objects in the cells it covers instead of every object of the level
+ * levels are strips a few rows high, so the cells only divide them along x
+ * cells are counted in level columns and keep their keys when the world origin moves
+ * @author Chris Lashley
+ */
+public class CollisionGrid<T extends AbstractGameObject>
+{
+	public static final String TAG = CollisionGrid.class.getName();
+
+	private final int cellWidth;
+	// cell at world x = 0
+	private int originCell;
+
+	// objects by cell, only cells with objects have an entry
+	private final IntMap<Array<T>> cells = new IntMap<Array<T>>();
+	// cells an object was filed under, first to last
+	private final ObjectIntMap<T> firstCells = new ObjectIntMap<T>();
+	private final ObjectIntMap<T> lastCells = new ObjectIntMap<T>();
+
+	// emptied cells are recycled, streamed levels keep filing objects under new cells
+	private final Pool<Array<T>> cellPool = new Pool<Array<T>>()
+	{
+		@Override
+		protected Array<T> newObject ()
+		{
+			return new Array<T>(false, 8);
+		}
+	};
+
+	/**
+	 * constructor
+	 * @param cellWidth cell width in level columns
+	 */
+	public CollisionGrid (int cellWidth)
+	{
+		this.cellWidth = cellWidth;
+	}
+
+	/**
+	 * file an object under the cells its bounds reach
+	 * @param object
+	 */
+	public void add (T object)
+	{
+		int first = cellOf(object.position.x);
+		int last = cellOf(object.position.x + object.bounds.width);
+		firstCells.put(object, first);
+		lastCells.put(object, last);
+		for (int cell = first; cell <= last; cell++)
+		{
+			Array<T> objects = cells.get(cell);
+			if (objects == null)
+			{
+				objects = cellPool.obtain();
+				cells.put(cell, objects);
+			}
+			objects.add(object);
+		}
+	}
+
+	/**
+	 * remove an object from the cells it was filed under
+	 * @param object
+	 */
+	public void remove (T object)
+	{
+		int first = firstCells.remove(object, 0);
+		int last = lastCells.remove(object, -1);
+		for (int cell = first; cell <= last; cell++)
+		{
+			Array<T> objects = cells.get(cell);
+			objects.removeValue(object, true);
+			if (objects.size == 0) cellPool.free(cells.remove(cell));
+		}
+	}
+
+	/**
+	 * file a moving object again if it reached other cells
+	 * @param object
+	 */
+	public void update (T object)
+	{
+		if (firstCells.get(object, 0) == cellOf(object.position.x)
+				&& lastCells.get(object, 0) == cellOf(object.position.x + object.bounds.width)) return;
+		remove(object);
+		add(object);
+	}
+
+	/**
+	 * remove all objects
+	 */
+	public void clear ()
+	{
+		for (Array<T> objects : cells.values())
+		{
+			objects.clear();
+			cellPool.free(objects);
+		}
+		cells.clear();
+		firstCells.clear();
+		lastCells.clear();
+	}
+
+	/**
+	 * number of objects in the grid
+	 * @return size
+	 */
+	public int size ()
+	{
+		return firstCells.size;
+	}
+
+	/**
+	 * follow the level origin, the objects have moved back by the same amount
+	 * @param shiftX columns the origin moved ahead, a multiple of the cell width
+	 */
+	public void shiftOrigin (int shiftX)
+	{
+		if (shiftX % cellWidth != 0)
+			throw new GdxRuntimeException("Origin shift not a multiple of the cell width: " + shiftX);
+		originCell += shiftX / cellWidth;
+	}
+
+	/**
+	 * collect the objects filed under the cells between x and x + width, each object once
+	 * @param x
+	 * @param width
+	 * @param result cleared, then filled with the candidates
+	 */
+	public void query (float x, float width, Array<T> result)
+	{
+		result.clear();
+		int first = cellOf(x);
+		int last = cellOf(x + width);
+		for (int cell = first; cell <= last; cell++)
+		{
+			Array<T> objects = cells.get(cell);
+			if (objects == null) continue;
+			for (int i = 0; i < objects.size; i++)
+			{
+				T object = objects.get(i);
+				// objects reaching several of the cells are only taken from the first of them
+				if (cell == first || firstCells.get(object, 0) == cell) result.add(object);
+			}
+		}
+	}
+
+	/**
+	 * cell containing a world x position
+	 * @param x
+	 * @return cell index counted from the level start
+	 */
+	private int cellOf (float x)
+	{
+		return originCell + MathUtils.floor(x / cellWidth);
+	}
+}
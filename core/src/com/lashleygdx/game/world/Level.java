@@ -1,9 +1,22 @@
 package com.lashleygdx.game.world;
 
 import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.OrthographicCamera;
 import com.badlogic.gdx.graphics.Pixmap;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.maps.MapLayer;
+import com.badlogic.gdx.maps.MapProperties;
+import com.badlogic.gdx.maps.tiled.TiledMap;
+import com.badlogic.gdx.maps.tiled.TmxMapLoader;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Bits;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.IntMap;
+import com.badlogic.gdx.utils.Pool;
+import com.lashleygdx.game.util.Constants;
 import com.lashleygdx.game.world.Level.BLOCK_TYPE;
 import com.lashleygdx.game.world.objects.AbstractGameObject;
 import com.lashleygdx.game.world.objects.BunnyHead;
@@ -20,10 +33,14 @@ import com.lashleygdx.game.world.objects.Goal;
  * level data
  * @author Chris Lashley
  */
-public class Level
+public class Level implements Disposable
 {
 	public static final String TAG = Level.class.getName();
 
+	// objects are drawn a little beyond their bounds (rock edges, scaled carrots) and drawn between ticks,
+	// so anything this close to the view is drawn too
+	private static final float VIEW_MARGIN = 1.0f;
+
 	public enum BLOCK_TYPE
 	{
 		EMPTY (0, 0, 0), // black
@@ -49,11 +66,45 @@ public class Level
 		{
 			return color;
 		}
+
+		/**
+		 * look up the block type of a 32-bit RGBA color
+		 * @param color
+		 * @return block type or null if the color is unknown
+		 */
+		public static BLOCK_TYPE fromColor (int color)
+		{
+			return colorLookup.get(color);
+		}
+	}
+
+	// color -> block type lookup table, built once from BLOCK_TYPE
+	private static final IntMap<BLOCK_TYPE> colorLookup = new IntMap<BLOCK_TYPE>();
+
+	static
+	{
+		for (BLOCK_TYPE type : BLOCK_TYPE.values())
+			colorLookup.put(type.getColor(), type);
 	}
 
 	// objects
 	public Array<Rock> rocks;
+	// rocks near the camera whose bodies are simulated, and the rocks of the next region while it is found
+	private Array<Rock> activeRocks = new Array<Rock>(false, 16);
+	private Array<Rock> regionRocks = new Array<Rock>(false, 16);
+	// counts changes to the set of rocks (streaming), geometry baked from the rocks is stale once it moves on
+	int rockVersion;
+	// falling carrots with bodies, and carrots that came to rest and lost them
 	public Array<Carrot> carrots;
+	public Array<Carrot> bakedCarrots;
+	private final Pool<Carrot> carrotPool = new Pool<Carrot>()
+	{
+		@Override
+		protected Carrot newObject ()
+		{
+			return new Carrot();
+		}
+	};
 	public Goal goal;
 
 	// decoration
@@ -64,184 +115,1003 @@ public class Level
 	// player
 	public BunnyHead bunnyHead;
 
-	// items
+	// items still to collect, collected items are swap-removed
 	public Array<GoldCoin> goldCoins;
 	public Array<Feather> feathers;
 
+	// rocks and items by position for collision tests
+	public CollisionGrid<Rock> rockGrid;
+	public CollisionGrid<GoldCoin> goldCoinGrid;
+	public CollisionGrid<Feather> featherGrid;
+
+	// part of the world the camera sees, level objects outside it are not drawn
+	private final Rectangle view = new Rectangle();
+	private Array<Rock> visibleRocks = new Array<Rock>(false, 16);
+	private Array<GoldCoin> visibleGoldCoins = new Array<GoldCoin>(false, 16);
+	private Array<Feather> visibleFeathers = new Array<Feather>(false, 16);
+	// draws the bunny's dust particles on their own
+	private final RenderQueue.Renderable dust = new RenderQueue.Renderable()
+	{
+		@Override
+		public void render (SpriteBatch batch)
+		{
+			bunnyHead.dustParticles.draw(batch);
+		}
+	};
+	// level objects drawn and culled by the last render
+	private int numDrawn;
+	private int numCulled;
+
+	// immutable level records, used to restore the level on reset, null for endless levels
+	private LevelData levelData;
+	private int spawnX;
+	private int spawnRow;
+
+	// items of levels built up front by record index, collected or not, and the collected records
+	private Array<GoldCoin> goldCoinsByRecord;
+	private Array<Feather> feathersByRecord;
+	private Bits collectedGoldCoins;
+	private Bits collectedFeathers;
+
+	// level column at world x = 0, moved ahead on long levels to keep world coordinates small
+	private int originX;
+
+	// seconds the level has been updated for, the moving rocks follow it, the length of the last tick,
+	// and the time between the last two ticks that is being drawn
+	private double time;
+	private float tickTime;
+	private double renderTime;
+
+	// chunk streaming, null if the whole level is built up front
+	private LevelStreamer streamer;
+	// decoration tile layers of levels loaded from Tiled maps, null for level images
+	private TiledMap tiledMap;
+	// height of a Tiled map row in world units, its columns are one unit wide like level columns
+	private float tiledRowHeight;
+
 	/**
 	 * constructor
 	 * @param filename
 	 */
 	public Level (String filename)
 	{
-		init (filename);
+		this (Gdx.files.internal(filename));
 	}
 
 	/**
-	 * build the specified level and populate with objects
-	 * @param filename
+	 * constructor
+	 * @param file
+	 */
+	public Level (FileHandle file)
+	{
+		init (file);
+	}
+
+	/**
+	 * constructor for level images that are already in memory (generated levels, benchmarks)
+	 * @param pixmap
+	 */
+	public Level (Pixmap pixmap)
+	{
+		init (LevelData.fromPixmap(pixmap, 0));
+	}
+
+	/**
+	 * constructor for decoded or compiled level data
+	 * @param levelData
+	 */
+	public Level (LevelData levelData)
+	{
+		init (levelData);
+	}
+
+	/**
+	 * constructor for endless levels, chunks are generated ahead of the player
+	 * @param generator
+	 */
+	public Level (LevelGenerator generator)
+	{
+		init (generator);
+	}
+
+	/**
+	 * constructor for Tiled maps that are already loaded (asset manager)
+	 * @param levelData level data built from the map
+	 * @param tiledMap
+	 */
+	public Level (LevelData levelData, TiledMap tiledMap)
+	{
+		setTiledMap(tiledMap);
+		init (levelData);
+	}
+
+	/**
+	 * load the specified level (Tiled map, compiled level if up to date, otherwise the level image) and build it
+	 * @param file
+	 */
+	private void init (FileHandle file)
+	{
+		if (LevelData.TMX_EXTENSION.equals(file.extension()))
+		{
+			// the map owns its tile set textures when it is not loaded through the asset manager
+			TiledMap map = new TmxMapLoader().load(file.path());
+			setTiledMap(map);
+			init (LevelData.fromTiledMap(map));
+		}
+		else
+		{
+			init (LevelData.load(file));
+		}
+		Gdx.app.debug (TAG, "level '" + file.path() + "' loaded");
+	}
+
+	/**
+	 * keep the decoration layers of a Tiled map, rocks are drawn as rock objects instead of tiles
+	 * objects of the map are placed in its tiles, so set it before the objects are placed
+	 * @param tiledMap
+	 */
+	private void setTiledMap (TiledMap tiledMap)
+	{
+		this.tiledMap = tiledMap;
+		MapProperties properties = tiledMap.getProperties();
+		tiledRowHeight = (float)properties.get("tileheight", Integer.class) / properties.get("tilewidth", Integer.class);
+		MapLayer rockLayer = tiledMap.getLayers().get(LevelData.TMX_ROCK_LAYER);
+		if (rockLayer != null) rockLayer.setVisible(false);
+	}
+
+	/**
+	 * Tiled map with the decoration layers of this level
+	 * @return map or null for levels from level images
+	 */
+	public TiledMap getTiledMap ()
+	{
+		return tiledMap;
+	}
+
+	/**
+	 * build the level from its object records and populate it with objects
+	 * wide levels are streamed: only the chunks around the camera get objects
+	 * @param levelData
 	 */
-	private void init (String filename)
+	private void init (LevelData levelData)
 	{
+		this.levelData = levelData;
+		int width = levelData.getWidth();
+		originX = 0;
+		time = 0;
+		renderTime = 0;
+		initGrids();
+
 		// player character
 		bunnyHead = null;
+		spawnX = levelData.getSpawnX();
+		spawnRow = levelData.getSpawnRow();
+		if (spawnX != LevelData.NONE)
+		{
+			bunnyHead = new BunnyHead();
+			placeBunnyHead();
+		}
+
 		// objects
-		rocks = new Array<Rock>();
-		goldCoins = new Array<GoldCoin>();
-		feathers = new Array<Feather>();
-		carrots = new Array<Carrot>();
-
-		// load image file that represents the level data
-		Pixmap pixmap = new Pixmap (Gdx.files.internal(filename));
-		// scan pixels from top left to bottom right
-		int lastPixel = -1;
-		for (int pixelY = 0; pixelY < pixmap.getHeight(); pixelY++)
-		{
-			for (int pixelX = 0; pixelX < pixmap.getWidth(); pixelX++)
+		carrots = new Array<Carrot>(false, 16);
+		bakedCarrots = new Array<Carrot>(false, 16);
+		goal = null;
+		if (levelData.getGoalX() != LevelData.NONE)
+		{
+			goal = new Goal();
+			placeGoal();
+		}
+
+		if (width >= Constants.LEVEL_STREAMING_MIN_WIDTH)
+		{
+			// rocks and items are created chunk by chunk in updateStreaming
+			rocks = new Array<Rock>(false, 16);
+			goldCoins = new Array<GoldCoin>(false, 16);
+			feathers = new Array<Feather>(false, 16);
+			streamer = new LevelStreamer(this, levelData);
+			streamer.update(spawnX);
+		}
+		else
+		{
+			streamer = null;
+			int numRocks = levelData.getRockCount();
+			rocks = new Array<Rock>(numRocks);
+			for (int i = 0; i < numRocks; i++)
 			{
-				AbstractGameObject obj = null;
-				float offsetHeight = 0;
-				// height grows from bottom to top
-				float baseHeight = pixmap.getHeight() - pixelY;
-				// get color of current pixel as 32-bit RGBA value
-				int currentPixel = pixmap.getPixel(pixelX,  pixelY);
-
-				// find matching color value to identify block type at (x, y) point and
-				// create the corresponding game object if there is a match
-
-				// empty space
-				if (BLOCK_TYPE.EMPTY.sameColor(currentPixel))
-				{
-					// do nothing
-				}
-				// rock
-				else if (BLOCK_TYPE.ROCK.sameColor(currentPixel))
-				{
-					if (lastPixel != currentPixel)
-					{
-						obj = new Rock();
-						float heightIncreaseFactor = 0.25f;
-						offsetHeight = -2.5f;
-						obj.position.set(pixelX, baseHeight * obj.dimension.y * heightIncreaseFactor + offsetHeight);
-						rocks.add((Rock)obj);
-					}
-					else
-					{
-						rocks.get(rocks.size - 1).increaseLength(1);
-					}
-				}
-				// player spawn point
-				else if	(BLOCK_TYPE.PLAYER_SPAWNPOINT.sameColor(currentPixel))
-				{
-					obj = new BunnyHead();
-					offsetHeight = -3.0f;
-					obj.position.set(pixelX, baseHeight * obj.dimension.y + offsetHeight);
-					bunnyHead = (BunnyHead)obj;
-				}
-				// feather
-				else if (BLOCK_TYPE.ITEM_FEATHER.sameColor(currentPixel))
-				{
-					obj = new Feather();
-					offsetHeight = -1.5f;
-					obj.position.set(pixelX, baseHeight * obj.dimension.y + offsetHeight);
-					feathers.add((Feather)obj);
-				}
-				// gold coin
-				else if (BLOCK_TYPE.ITEM_GOLD_COIN.sameColor(currentPixel))
-				{
-					obj = new GoldCoin();
-					offsetHeight = -1.5f;
-					obj.position.set(pixelX, baseHeight * obj.dimension.y + offsetHeight);
-					goldCoins.add((GoldCoin)obj);
-				}
-				// goal
-				else if (BLOCK_TYPE.GOAL.sameColor(currentPixel))
-				{
-					obj = new Goal();
-					offsetHeight = -7.0f;
-					obj.position.set(pixelX, baseHeight + offsetHeight);
-					goal = (Goal)obj;
-				}
-				// unknown object/pixel color
-				else
-				{
-					int r = 0xff & (currentPixel >>> 24);	// red color channel
-					int g = 0xff & (currentPixel >>> 16);	// green color channel
-					int b = 0xff & (currentPixel >>> 8);	// blue color channel
-					int a = 0xff & currentPixel;	// alpha color channel
-					Gdx.app.error(TAG, "Unknown object at x<" + pixelX + "> y<" + pixelY + ">: r<" + r + "> g<" + g +
-							"> b<" + b + "> a<" + a + ">");
-				}
-				lastPixel = currentPixel;
+				Rock rock = new Rock();
+				placeRock(rock, levelData, i);
+				addRock(rock);
+			}
+
+			// items
+			int numGoldCoins = levelData.getGoldCoinCount();
+			goldCoins = new Array<GoldCoin>(false, numGoldCoins);
+			goldCoinsByRecord = new Array<GoldCoin>(numGoldCoins);
+			collectedGoldCoins = new Bits(numGoldCoins);
+			for (int i = 0; i < numGoldCoins; i++)
+			{
+				GoldCoin goldCoin = new GoldCoin();
+				placeGoldCoin(goldCoin, levelData, i);
+				addGoldCoin(goldCoin);
+				goldCoinsByRecord.add(goldCoin);
+			}
+			int numFeathers = levelData.getFeatherCount();
+			feathers = new Array<Feather>(false, numFeathers);
+			feathersByRecord = new Array<Feather>(numFeathers);
+			collectedFeathers = new Bits(numFeathers);
+			for (int i = 0; i < numFeathers; i++)
+			{
+				Feather feather = new Feather();
+				placeFeather(feather, levelData, i);
+				addFeather(feather);
+				feathersByRecord.add(feather);
 			}
 		}
 
-		// decoration
-		clouds = new Clouds (pixmap.getWidth());
+		initDecoration(width);
+	}
+
+	/**
+	 * start an endless level: the player spawns above the first platform, there is no goal
+	 * @param generator
+	 */
+	private void init (LevelGenerator generator)
+	{
+		levelData = null;
+		originX = 0;
+		time = 0;
+		renderTime = 0;
+		initGrids();
+
+		// player character
+		generator.begin();
+		spawnX = 0;
+		spawnRow = generator.getSpawnRow();
+		bunnyHead = new BunnyHead();
+		placeBunnyHead();
+
+		// objects, created chunk by chunk in updateStreaming
+		carrots = new Array<Carrot>(false, 16);
+		bakedCarrots = new Array<Carrot>(false, 16);
+		goal = null;
+		rocks = new Array<Rock>(false, 16);
+		goldCoins = new Array<GoldCoin>(false, 16);
+		feathers = new Array<Feather>(false, 16);
+		streamer = new LevelStreamer(this, generator);
+		streamer.update(spawnX);
+
+		initDecoration(0);
+	}
+
+	/**
+	 * create the empty collision grids
+	 */
+	private void initGrids ()
+	{
+		rockGrid = new CollisionGrid<Rock>(Constants.COLLISION_CELL_WIDTH);
+		goldCoinGrid = new CollisionGrid<GoldCoin>(Constants.COLLISION_CELL_WIDTH);
+		featherGrid = new CollisionGrid<Feather>(Constants.COLLISION_CELL_WIDTH);
+	}
+
+	/**
+	 * create the decoration, streamed levels only have to cover the window around the camera
+	 * @param width level width
+	 */
+	private void initDecoration (int width)
+	{
+		float windowWidth = streamer != null ? streamer.getWindowWidth() : width;
+		clouds = new Clouds (windowWidth);
 		clouds.position.set (0, 2);
-		mountains = new Mountains (pixmap.getWidth());
+		mountains = new Mountains (width);
 		mountains.position.set(-1, -1);
-		waterOverlay = new WaterOverlay (pixmap.getWidth());
+		mountains.savePosition();
+		if (streamer != null) mountains.setWindowWidth(windowWidth);
+		waterOverlay = new WaterOverlay (windowWidth);
 		waterOverlay.position.set(0, -3.71f);
+	}
+
+	/**
+	 * restore the level to its loaded state in place instead of building it again
+	 * rock bodies are moved back, carrot bodies have to be destroyed by the caller first
+	 * the origin moves back to the level start, the caller moves the camera with it
+	 */
+	public void reset ()
+	{
+		if (originX != 0) shiftOrigin(-originX);
+		if (bunnyHead != null)
+		{
+			bunnyHead.reset();
+			placeBunnyHead();
+		}
+		clearCarrots();
 
-		// free memory
-		pixmap.dispose();
-		Gdx.app.debug (TAG, "level '" + filename + "' loaded");
+		if (streamer != null)
+		{
+			streamer.reset();
+			streamer.update(spawnX);
+			return;
+		}
+		for (int i = 0; i < rocks.size; i++)
+		{
+			Rock rock = rocks.get(i);
+			rock.reset();
+			placeRock(rock, levelData, i);
+			// a compound body follows the first rock of its group
+			if (rock.body != null && (rock.group == null || rock.group.first() == rock))
+			{
+				rock.body.setTransform(rock.position, 0);
+				rock.body.setLinearVelocity(0, 0);
+			}
+		}
+		for (int i = 0; i < goldCoinsByRecord.size; i++)
+		{
+			GoldCoin goldCoin = goldCoinsByRecord.get(i);
+			goldCoin.reset();
+			placeGoldCoin(goldCoin, levelData, i);
+		}
+		for (int i = 0; i < feathersByRecord.size; i++)
+		{
+			Feather feather = feathersByRecord.get(i);
+			feather.reset();
+			placeFeather(feather, levelData, i);
+		}
+		// collected items go back into the level
+		for (int i = collectedGoldCoins.nextSetBit(0); i >= 0; i = collectedGoldCoins.nextSetBit(i + 1))
+		{
+			addGoldCoin(goldCoinsByRecord.get(i));
+		}
+		for (int i = collectedFeathers.nextSetBit(0); i >= 0; i = collectedFeathers.nextSetBit(i + 1))
+		{
+			addFeather(feathersByRecord.get(i));
+		}
+		collectedGoldCoins.clear();
+		collectedFeathers.clear();
 	}
 
 	/**
-	 * draw the level and populate it with objects
-	 * @param batch
+	 * position the player at the spawn point
 	 */
-	public void render (SpriteBatch batch)
+	private void placeBunnyHead ()
 	{
-		// draw mountains
-		mountains.render(batch);
+		if (tiledMap != null)
+			bunnyHead.position.set(spawnX - originX, getTiledRowBottom(spawnRow));
+		else
+			bunnyHead.position.set(spawnX - originX, spawnRow * bunnyHead.dimension.y - 3.0f);
+		bunnyHead.savePosition();
+	}
 
-		// draw goal
-		goal.render(batch);
+	/**
+	 * position the goal from its level record
+	 */
+	private void placeGoal ()
+	{
+		// the goal stands on the middle of its bottom edge
+		if (tiledMap != null)
+			goal.position.set(levelData.getGoalX() - originX + 0.5f, getTiledRowBottom(levelData.getGoalRow()));
+		else
+			goal.position.set(levelData.getGoalX() - originX, levelData.getGoalRow() - 7.0f);
+	}
 
-		// draw rocks
-		for (Rock rock : rocks)
-			rock.render(batch);
+	/**
+	 * position a rock from its level record
+	 * @param rock
+	 * @param levelData
+	 * @param index record index
+	 */
+	void placeRock (Rock rock, LevelData levelData, int index)
+	{
+		placeRock(rock, levelData.getRockX(index), levelData.getRockRow(index), levelData.getRockLength(index));
+	}
 
-		// draw gold coins
-		for (GoldCoin goldCoin : goldCoins)
-			goldCoin.render(batch);
+	/**
+	 * position a rock from a rock record
+	 * @param rock
+	 * @param x
+	 * @param row
+	 * @param length
+	 */
+	void placeRock (Rock rock, int x, int row, int length)
+	{
+		if (tiledMap != null)
+		{
+			rock.setAnchor(x - originX, getTiledRowBottom(row));
+		}
+		else
+		{
+			float heightIncreaseFactor = 0.25f;
+			rock.setAnchor(x - originX, row * rock.dimension.y * heightIncreaseFactor - 2.5f);
+		}
+		rock.syncPath(time);
+		rock.setLength(length);
+	}
 
-		// draw feathers
+	/**
+	 * position a gold coin from its level record
+	 * @param goldCoin
+	 * @param levelData
+	 * @param index record index
+	 */
+	void placeGoldCoin (GoldCoin goldCoin, LevelData levelData, int index)
+	{
+		placeGoldCoin(goldCoin, levelData.getGoldCoinX(index), levelData.getGoldCoinRow(index));
+		goldCoin.record = index;
+	}
+
+	/**
+	 * position a gold coin from a gold coin record
+	 * @param goldCoin
+	 * @param x
+	 * @param row
+	 */
+	void placeGoldCoin (GoldCoin goldCoin, int x, int row)
+	{
+		if (tiledMap != null)
+			goldCoin.position.set(x - originX + (1 - goldCoin.dimension.x) / 2,
+					getTiledRowBottom(row) + (tiledRowHeight - goldCoin.dimension.y) / 2);
+		else
+			goldCoin.position.set(x - originX, row * goldCoin.dimension.y - 1.5f);
+	}
+
+	/**
+	 * position a feather from its level record
+	 * @param feather
+	 * @param levelData
+	 * @param index record index
+	 */
+	void placeFeather (Feather feather, LevelData levelData, int index)
+	{
+		placeFeather(feather, levelData.getFeatherX(index), levelData.getFeatherRow(index));
+		feather.record = index;
+	}
+
+	/**
+	 * position a feather from a feather record
+	 * @param feather
+	 * @param x
+	 * @param row
+	 */
+	void placeFeather (Feather feather, int x, int row)
+	{
+		if (tiledMap != null)
+			feather.position.set(x - originX + (1 - feather.dimension.x) / 2,
+					getTiledRowBottom(row) + (tiledRowHeight - feather.dimension.y) / 2);
+		else
+			feather.position.set(x - originX, row * feather.dimension.y - 1.5f);
+	}
+
+	/**
+	 * bottom of a Tiled map row: rocks, the player and the goal stand on it, items float in the middle of the row,
+	 * in line with the tile layers. level image rows place each type of object at its own height instead
+	 * @param row level row, 1 for the bottom row
+	 * @return world y
+	 */
+	private float getTiledRowBottom (int row)
+	{
+		return Constants.TILED_MAP_BOTTOM + (row - 1) * tiledRowHeight;
+	}
+
+	/**
+	 * check if objects are streamed in chunks around the camera
+	 * @return true for streamed levels
+	 */
+	public boolean isStreamed ()
+	{
+		return streamer != null;
+	}
+
+	/**
+	 * check for endless levels
+	 * @return true if the level is generated while playing
+	 */
+	public boolean isEndless ()
+	{
+		return streamer != null && streamer.isEndless();
+	}
+
+	/**
+	 * drop recycled rocks whose box2d bodies belonged to a world that was disposed
+	 */
+	public void clearRecycledObjects ()
+	{
+		if (streamer != null) streamer.clearPools();
+	}
+
+	/**
+	 * get a recycled carrot and add it to the falling carrots, the caller gives it a body
+	 * @return carrot
+	 */
+	public Carrot obtainCarrot ()
+	{
+		Carrot carrot = carrotPool.obtain();
+		carrots.add(carrot);
+		return carrot;
+	}
+
+	/**
+	 * recycle a falling carrot whose body the caller destroyed
+	 * @param index index in carrots
+	 */
+	public void freeCarrot (int index)
+	{
+		carrotPool.free(carrots.removeIndex(index));
+	}
+
+	/**
+	 * move a falling carrot to the baked carrots, the caller destroyed its body
+	 * @param index index in carrots
+	 * @param support rock below the carrot, or null
+	 */
+	public void bakeCarrot (int index, Rock support)
+	{
+		Carrot carrot = carrots.removeIndex(index);
+		carrot.bake(support);
+		bakedCarrots.add(carrot);
+	}
+
+	/**
+	 * recycle all carrots, the caller destroyed the bodies of the falling ones
+	 */
+	public void clearCarrots ()
+	{
+		carrotPool.freeAll(carrots);
+		carrots.clear();
+		carrotPool.freeAll(bakedCarrots);
+		bakedCarrots.clear();
+	}
+
+	/**
+	 * take a collected gold coin out of the level, it comes back when the level is reset
+	 * @param goldCoin
+	 */
+	public void collectGoldCoin (GoldCoin goldCoin)
+	{
+		goldCoin.collected = true;
+		removeGoldCoin(goldCoin);
+		// the streamer remembers collected items of streamed levels when it evicts their chunk
+		if (streamer == null) collectedGoldCoins.set(goldCoin.record);
+	}
+
+	/**
+	 * take a collected feather out of the level, it comes back when the level is reset
+	 * @param feather
+	 */
+	public void collectFeather (Feather feather)
+	{
+		feather.collected = true;
+		removeFeather(feather);
+		if (streamer == null) collectedFeathers.set(feather.record);
+	}
+
+	/**
+	 * put a rock into the level, geometry baked from the rocks goes stale
+	 * @param rock
+	 */
+	void addRock (Rock rock)
+	{
+		addIndexed(rocks, rock);
+		rockVersion++;
+		rockGrid.add(rock);
+	}
+
+	/**
+	 * take a rock out of the level
+	 * @param rock
+	 */
+	void removeRock (Rock rock)
+	{
+		removeIndexed(rocks, rock);
+		rockVersion++;
+		rockGrid.remove(rock);
+	}
+
+	/**
+	 * put a gold coin into the level
+	 * @param goldCoin
+	 */
+	void addGoldCoin (GoldCoin goldCoin)
+	{
+		addIndexed(goldCoins, goldCoin);
+		goldCoinGrid.add(goldCoin);
+	}
+
+	/**
+	 * take a gold coin out of the level
+	 * @param goldCoin
+	 */
+	void removeGoldCoin (GoldCoin goldCoin)
+	{
+		removeIndexed(goldCoins, goldCoin);
+		goldCoinGrid.remove(goldCoin);
+	}
+
+	/**
+	 * put a feather into the level
+	 * @param feather
+	 */
+	void addFeather (Feather feather)
+	{
+		addIndexed(feathers, feather);
+		featherGrid.add(feather);
+	}
+
+	/**
+	 * take a feather out of the level
+	 * @param feather
+	 */
+	void removeFeather (Feather feather)
+	{
+		removeIndexed(feathers, feather);
+		featherGrid.remove(feather);
+	}
+
+	/**
+	 * add an object to the end of an array and remember where it is
+	 * @param objects
+	 * @param object
+	 */
+	private static <T extends AbstractGameObject> void addIndexed (Array<T> objects, T object)
+	{
+		object.levelIndex = objects.size;
+		objects.add(object);
+	}
+
+	/**
+	 * remove an object added with addIndexed, the last object takes its place
+	 * @param objects
+	 * @param object
+	 */
+	private static <T extends AbstractGameObject> void removeIndexed (Array<T> objects, T object)
+	{
+		T last = objects.pop();
+		if (last != object)
+		{
+			objects.set(object.levelIndex, last);
+			last.levelIndex = object.levelIndex;
+		}
+		object.levelIndex = -1;
+	}
+
+	/**
+	 * level column at world x = 0
+	 * @return origin column
+	 */
+	public int getOriginX ()
+	{
+		return originX;
+	}
+
+	/**
+	 * move the world origin so positions near the camera stay small and precise on long levels
+	 * every object moves back by the shift, box2d bodies and the camera are moved by the caller
+	 * @param shiftX columns to move the origin ahead, a multiple of the collision cell width,
+	 * and of the chunk width for streamed levels
+	 */
+	public void shiftOrigin (int shiftX)
+	{
+		originX += shiftX;
+		if (streamer != null) streamer.shiftOrigin(shiftX);
+		rockGrid.shiftOrigin(shiftX);
+		goldCoinGrid.shiftOrigin(shiftX);
+		featherGrid.shiftOrigin(shiftX);
+
+		bunnyHead.translateX(-shiftX);
+		if (goal != null) goal.translateX(-shiftX);
+		for (Rock rock : rocks)
+			rock.translateX(-shiftX);
+		for (GoldCoin goldCoin : goldCoins)
+			goldCoin.translateX(-shiftX);
 		for (Feather feather : feathers)
-			feather.render(batch);
+			feather.translateX(-shiftX);
+		for (Carrot carrot : carrots)
+			carrot.translateX(-shiftX);
+		for (Carrot carrot : bakedCarrots)
+			carrot.translateX(-shiftX);
+
+		clouds.translateX(-shiftX);
+		mountains.translateX(-shiftX);
+		mountains.setOriginX(originX);
+		waterOverlay.translateX(-shiftX);
+	}
+
+	/**
+	 * set the listener that keeps box2d bodies in sync with streamed rocks
+	 * @param listener
+	 */
+	public void setStreamListener (LevelStreamer.Listener listener)
+	{
+		if (streamer != null) streamer.setListener(listener);
+	}
+
+	/**
+	 * move streamed chunks and decoration with the camera
+	 * @param cameraPosition
+	 */
+	public void updateStreaming (Vector2 cameraPosition)
+	{
+		if (streamer == null) return;
+		streamer.update(cameraPosition.x);
+		clouds.position.x = cameraPosition.x - streamer.getWindowWidth() / 2;
+		waterOverlay.position.x = cameraPosition.x;
+	}
+
+	/**
+	 * set the part of the world to draw, from the camera and its zoom
+	 * @param camera
+	 */
+	public void setView (OrthographicCamera camera)
+	{
+		float width = camera.viewportWidth * camera.zoom;
+		float height = camera.viewportHeight * camera.zoom;
+		view.set(camera.position.x - width / 2, camera.position.y - height / 2, width, height);
+		mountains.setView(view.x - VIEW_MARGIN, view.width + VIEW_MARGIN * 2);
+	}
+
+	/**
+	 * check if a box is close enough to the view to be drawn
+	 * @param x
+	 * @param y
+	 * @param width
+	 * @param height
+	 * @return true if the box reaches into the view and its margin
+	 */
+	private boolean inView (float x, float y, float width, float height)
+	{
+		return x < view.x + view.width + VIEW_MARGIN && x + width > view.x - VIEW_MARGIN
+				&& y < view.y + view.height + VIEW_MARGIN && y + height > view.y - VIEW_MARGIN;
+	}
+
+	/**
+	 * add the level and its objects to a render queue, each in its layer
+	 * only objects in the view are added, rocks and items are found through their collision grids
+	 * so the cost does not grow with the length of the level
+	 * @param queue
+	 * @param withStaticGeometry false if the rocks and the goal are drawn from a StaticGeometry cache instead
+	 */
+	public void submit (RenderQueue queue, boolean withStaticGeometry)
+	{
+		numDrawn = 0;
+		int numObjects = goldCoins.size + feathers.size + carrots.size + bakedCarrots.size;
+
+		// mountains
+		queue.add(RenderQueue.LAYER_BACKGROUND, Assets.instance.levelDecoration.mountains, mountains);
+
+		// goal
+		if (goal != null && withStaticGeometry)
+		{
+			numObjects++;
+			if (inView(goal.position.x - goal.origin.x, goal.position.y - goal.origin.y, goal.dimension.x, goal.dimension.y))
+			{
+				queue.add(RenderQueue.LAYER_GEOMETRY, Assets.instance.levelDecoration.goal.getTexture(), goal);
+				numDrawn++;
+			}
+		}
+
+		float queryX = view.x - VIEW_MARGIN;
+		float queryWidth = view.width + VIEW_MARGIN * 2;
+
+		// rocks
+		if (withStaticGeometry)
+		{
+			numObjects += rocks.size;
+			rockGrid.query(queryX, queryWidth, visibleRocks);
+			for (Rock rock : visibleRocks)
+			{
+				if (!inView(rock.position.x, rock.position.y, rock.bounds.width, rock.bounds.height)) continue;
+				queue.add(RenderQueue.LAYER_GEOMETRY, Assets.instance.rock.middle.getTexture(), rock);
+				numDrawn++;
+			}
+		}
+
+		// the bunny's dust has a texture of its own, behind the items it doesn't split their batch
+		queue.add(RenderQueue.LAYER_EFFECTS, bunnyHead.dustParticles.getEmitters().first().getSprite().getTexture(), dust);
 
-		// draw carrots
+		// gold coins
+		goldCoinGrid.query(queryX, queryWidth, visibleGoldCoins);
+		for (GoldCoin goldCoin : visibleGoldCoins)
+		{
+			if (!inView(goldCoin.position.x, goldCoin.position.y, goldCoin.bounds.width, goldCoin.bounds.height)) continue;
+			queue.add(RenderQueue.LAYER_OBJECTS, Assets.instance.goldCoin.goldCoin.getTexture(), goldCoin);
+			numDrawn++;
+		}
+
+		// feathers
+		featherGrid.query(queryX, queryWidth, visibleFeathers);
+		for (Feather feather : visibleFeathers)
+		{
+			if (!inView(feather.position.x, feather.position.y, feather.bounds.width, feather.bounds.height)) continue;
+			queue.add(RenderQueue.LAYER_OBJECTS, Assets.instance.feather.feather.getTexture(), feather);
+			numDrawn++;
+		}
+
+		// carrots, there is no grid for them but a test is much cheaper than a draw
+		submitCarrots(queue, bakedCarrots);
+		submitCarrots(queue, carrots);
+		numCulled = numObjects - numDrawn;
+
+		// player character (bunny head), after the items in their layer so it is drawn in front of them
+		queue.add(RenderQueue.LAYER_OBJECTS, Assets.instance.bunny.head.getTexture(), bunnyHead);
+
+		// water overlay and clouds
+		queue.add(RenderQueue.LAYER_FOREGROUND, Assets.instance.levelDecoration.waterOverlay.getTexture(), waterOverlay);
+		queue.add(RenderQueue.LAYER_FOREGROUND, Assets.instance.levelDecoration.cloud01.getTexture(), clouds);
+	}
+
+	/**
+	 * add the carrots in the view to a render queue
+	 * @param queue
+	 * @param carrots
+	 */
+	private void submitCarrots (RenderQueue queue, Array<Carrot> carrots)
+	{
+		for (int i = 0; i < carrots.size; i++)
+		{
+			Carrot carrot = carrots.get(i);
+			if (!inView(carrot.position.x - carrot.origin.x, carrot.position.y - carrot.origin.y,
+					carrot.dimension.x, carrot.dimension.y)) continue;
+			queue.add(RenderQueue.LAYER_OBJECTS, Assets.instance.levelDecoration.carrot.getTexture(), carrot);
+			numDrawn++;
+		}
+	}
+
+	/**
+	 * number of rocks, items, carrots and goals the last submit added
+	 * @return drawn objects
+	 */
+	public int getNumDrawn ()
+	{
+		return numDrawn;
+	}
+
+	/**
+	 * number of rocks, items, carrots and goals the last submit left out because they were outside the view
+	 * @return culled objects
+	 */
+	public int getNumCulled ()
+	{
+		return numCulled;
+	}
+
+	/**
+	 * remember where the moving objects are before a simulation tick
+	 */
+	public void savePositions ()
+	{
+		bunnyHead.savePosition();
+		for (Rock rock : activeRocks)
+			rock.savePosition();
 		for (Carrot carrot : carrots)
-			carrot.render(batch);
+			carrot.savePosition();
+		for (Carrot carrot : bakedCarrots)
+			carrot.savePosition();
+		mountains.savePosition();
+	}
 
-		// draw player characters (bunny head)
-		bunnyHead.render(batch);
+	/**
+	 * move the moving objects between their last two simulation ticks for drawing
+	 * items, the goal, sleeping rocks and the decoration that follows the camera don't move between ticks
+	 * @param alpha 0 for the last tick, 1 for the current one
+	 */
+	public void beginInterpolation (float alpha)
+	{
+		renderTime = time - (1 - alpha) * tickTime;
+		bunnyHead.beginInterpolation(alpha);
+		for (Rock rock : activeRocks)
+			rock.beginInterpolation(alpha);
+		for (Carrot carrot : carrots)
+			carrot.beginInterpolation(alpha);
+		for (Carrot carrot : bakedCarrots)
+			carrot.beginInterpolation(alpha);
+		mountains.beginInterpolation(alpha);
+	}
+
+	/**
+	 * put the moving objects back to their current tick after drawing
+	 */
+	public void endInterpolation ()
+	{
+		renderTime = time;
+		bunnyHead.endInterpolation();
+		for (Rock rock : activeRocks)
+			rock.endInterpolation();
+		for (Carrot carrot : carrots)
+			carrot.endInterpolation();
+		for (Carrot carrot : bakedCarrots)
+			carrot.endInterpolation();
+		mountains.endInterpolation();
+	}
+
+	/**
+	 * wake the rocks between x - halfWidth and x + halfWidth and put the rocks that left it to sleep,
+	 * so the box2d step and the level update only cost what is near the camera
+	 * @param x center of the region, usually the camera
+	 * @param halfWidth
+	 */
+	public void updateActiveRegion (float x, float halfWidth)
+	{
+		rockGrid.query(x - halfWidth, halfWidth * 2, regionRocks);
+		for (Rock rock : regionRocks)
+			rock.inActiveRegion = true;
+		// rocks sharing a body wake together, or they would drift out of step with it
+		for (int i = 0, n = regionRocks.size; i < n; i++)
+		{
+			Array<Rock> group = regionRocks.get(i).group;
+			if (group == null) continue;
+			for (Rock member : group)
+			{
+				if (member.inActiveRegion) continue;
+				member.inActiveRegion = true;
+				regionRocks.add(member);
+			}
+		}
+		// streamed rocks that left the level are asleep already
+		for (Rock rock : activeRocks)
+			if (!rock.inActiveRegion && rock.isActive()) rock.setActive(false);
+		for (Rock rock : regionRocks)
+		{
+			rock.inActiveRegion = false;
+			if (rock.isActive()) continue;
+			// a rock that slept stood still, it catches up with the rocks that kept moving
+			float lastX = rock.position.x;
+			rock.syncPath(time);
+			if (rock.position.x != lastX) rockGrid.update(rock);
+			rock.setActive(true);
+		}
+		Array<Rock> swap = activeRocks;
+		activeRocks = regionRocks;
+		regionRocks = swap;
+	}
 
-		// draw water overlay
-		waterOverlay.render(batch);
+	/**
+	 * level time being drawn, between the last two ticks while the level is interpolated
+	 * @return seconds
+	 */
+	public double getRenderTime ()
+	{
+		return renderTime;
+	}
 
-		// draw clouds
-		clouds.render(batch);
+	/**
+	 * rocks near the camera, only these are updated
+	 * @return active rocks
+	 */
+	public Array<Rock> getActiveRocks ()
+	{
+		return activeRocks;
 	}
 
 	/**
-	 * update level object variables
+	 * update level object variables, rocks outside the active region sleep
 	 * @param deltaTime
 	 */
 	public void update (float deltaTime)
 	{
+		time += deltaTime;
+		tickTime = deltaTime;
+		renderTime = time;
 		bunnyHead.update(deltaTime);
-		for (Rock rock : rocks)
-			rock.update(deltaTime);
+		for (Rock rock : activeRocks)
+		{
+			rock.update(deltaTime, time);
+			// rocks moving along x can reach other collision cells
+			if (rock.lastMove.x != 0) rockGrid.update(rock);
+		}
 		for (GoldCoin goldCoin : goldCoins)
 			goldCoin.update(deltaTime);
 		for (Feather feather : feathers)
 			feather.update(deltaTime);
 		for (Carrot carrot : carrots)
 			carrot.update(deltaTime);
+		for (Carrot carrot : bakedCarrots)
+			carrot.update(deltaTime);
 		clouds.update(deltaTime);
 	}
-}
\ No newline at end of file
+
+	/**
+	 * free the Tiled map if this level loaded it itself
+	 */
+	@Override
+	public void dispose ()
+	{
+		if (tiledMap != null) tiledMap.dispose();
+	}
+}
@@ -0,0 +1,1084 @@
+package com.lashleygdx.game.world;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Files.FileType;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Pixmap.Blending;
+import com.badlogic.gdx.graphics.Pixmap.Format;
+import com.badlogic.gdx.maps.MapLayer;
+import com.badlogic.gdx.maps.MapObject;
+import com.badlogic.gdx.maps.MapProperties;
+import com.badlogic.gdx.maps.objects.EllipseMapObject;
+import com.badlogic.gdx.maps.objects.RectangleMapObject;
+import com.badlogic.gdx.maps.objects.TextureMapObject;
+import com.badlogic.gdx.maps.tiled.TiledMap;
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
+import com.badlogic.gdx.math.Ellipse;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.IntArray;
+import com.lashleygdx.game.world.Level.BLOCK_TYPE;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.CRC32;
+
+/**
+ * compact level description: object records, merged rock runs, counts and bounds
+ * the records live in one ByteBuffer using the compiled level file layout, so a
+ * memory mapped .lvl file is used as is without any parsing
+ * @author Chris Lashley
+ */
+public class LevelData
+{
+	public static final String TAG = LevelData.class.getName();
+
+	// file extension of compiled levels
+	public static final String COMPILED_EXTENSION = "lvl";
+	// file extension and layer names of Tiled maps
+	public static final String TMX_EXTENSION = "tmx";
+	public static final String TMX_ROCK_LAYER = "rocks";
+	public static final String TMX_OBJECT_LAYER = "objects";
+
+	// marks a missing spawn point or goal
+	public static final int NONE = -1;
+
+	private static final int MAGIC = 0x43424c56;	// "CBLV"
+	private static final int VERSION = 1;
+
+	// header layout
+	private static final int OFFSET_MAGIC = 0;
+	private static final int OFFSET_VERSION = 4;
+	private static final int OFFSET_SOURCE_HASH = 8;
+	private static final int OFFSET_WIDTH = 16;
+	private static final int OFFSET_HEIGHT = 20;
+	private static final int OFFSET_ROCK_COUNT = 24;
+	private static final int OFFSET_GOLD_COIN_COUNT = 28;
+	private static final int OFFSET_FEATHER_COUNT = 32;
+	private static final int OFFSET_SPAWN_X = 36;
+	private static final int OFFSET_SPAWN_ROW = 40;
+	private static final int OFFSET_GOAL_X = 44;
+	private static final int OFFSET_GOAL_ROW = 48;
+	private static final int OFFSET_MIN_X = 52;
+	private static final int OFFSET_MAX_X = 56;
+	private static final int OFFSET_MIN_ROW = 60;
+	private static final int OFFSET_MAX_ROW = 64;
+	private static final int HEADER_SIZE = 68;
+
+	// record layout: rock = x, row, length / item = x, row
+	private static final int ROCK_RECORD_SIZE = 12;
+	private static final int ITEM_RECORD_SIZE = 8;
+
+	private static final BLOCK_TYPE[] BLOCK_TYPES = BLOCK_TYPE.values();
+	private static final byte UNKNOWN_BLOCK = -1;
+
+	// images with fewer pixels are decoded on the calling thread
+	private static final int PARALLEL_MIN_PIXELS = 1 << 20;
+	private static ExecutorService decoderThreads;
+
+	/**
+	 * consecutive pixels in scan order decoded by one thread, with the objects found in them
+	 * @author Chris Lashley
+	 */
+	private static class Band
+	{
+		final int start;
+		final int end;
+		final int[] counts = new int[BLOCK_TYPES.length];
+		// index of the first record written by this band
+		int firstRock;
+		int firstGoldCoin;
+		int firstFeather;
+		// rock pixels at the start of the band that continue a rock of an earlier band
+		int leadingRockLength;
+		// pixel index of the last spawn point and goal
+		int spawn = NONE;
+		int goal = NONE;
+		int minX = Integer.MAX_VALUE;
+		int maxX = Integer.MIN_VALUE;
+		int minRow = Integer.MAX_VALUE;
+		int maxRow = Integer.MIN_VALUE;
+
+		Band (int start, int end)
+		{
+			this.start = start;
+			this.end = end;
+		}
+	}
+
+	/**
+	 * work done for every band
+	 * @author Chris Lashley
+	 */
+	private interface BandTask
+	{
+		public void run (Band band);
+	}
+
+	private final ByteBuffer data;
+	private final int rockOffset;
+	private final int goldCoinOffset;
+	private final int featherOffset;
+
+	/**
+	 * wrap a buffer in the compiled level layout
+	 * @param data header and records, checked by wrap when read from a file
+	 */
+	private LevelData (ByteBuffer data)
+	{
+		this.data = data;
+		rockOffset = HEADER_SIZE;
+		goldCoinOffset = rockOffset + getRockCount() * ROCK_RECORD_SIZE;
+		featherOffset = goldCoinOffset + getGoldCoinCount() * ITEM_RECORD_SIZE;
+	}
+
+	/**
+	 * load a level: a compiled level is used when it exists and matches the hash of its
+	 * source image, otherwise the level image is decoded
+	 * @param filename level image or compiled level
+	 * @return level data
+	 */
+	public static LevelData load (String filename)
+	{
+		return load(Gdx.files.internal(filename));
+	}
+
+	/**
+	 * load a level: a compiled level is used when it exists and matches the hash of its
+	 * source image, otherwise the level image is decoded
+	 * @param file level image or compiled level
+	 * @return level data
+	 */
+	public static LevelData load (FileHandle file)
+	{
+		String filename = file.path();
+		if (COMPILED_EXTENSION.equals(file.extension()))
+		{
+			LevelData levelData = map(file);
+			if (levelData == null)
+				throw new GdxRuntimeException("Not a compiled level: " + filename);
+			return levelData;
+		}
+
+		byte[] bytes = file.readBytes();
+		long sourceHash = hash(bytes);
+		FileHandle compiled = compiledFile(file);
+		if (compiled.exists())
+		{
+			LevelData levelData = map(compiled);
+			if (levelData != null && levelData.getSourceHash() == sourceHash)
+				return levelData;
+			Gdx.app.error(TAG, "compiled level '" + compiled.path() + "' is " + (levelData == null ? "invalid" : "stale")
+					+ ", decoding '" + filename + "'");
+		}
+
+		Pixmap pixmap = new Pixmap(bytes, 0, bytes.length);
+		LevelData levelData = fromPixmap(pixmap, sourceHash);
+		pixmap.dispose();
+		return levelData;
+	}
+
+	/**
+	 * location of the compiled version of a level image
+	 * @param source
+	 * @return compiled file
+	 */
+	public static FileHandle compiledFile (FileHandle source)
+	{
+		return source.sibling(source.nameWithoutExtension() + "." + COMPILED_EXTENSION);
+	}
+
+	/**
+	 * hash used to detect compiled levels that are older than their level image
+	 * @param bytes source file content
+	 * @return hash
+	 */
+	public static long hash (byte[] bytes)
+	{
+		CRC32 crc = new CRC32();
+		crc.update(bytes, 0, bytes.length);
+		return crc.getValue();
+	}
+
+	/**
+	 * memory map a compiled level, or read it into memory when it is not a plain file (classpath, jar)
+	 * @param file
+	 * @return level data backed by the file content, null if the file is not a compiled level or cut short
+	 */
+	private static LevelData map (FileHandle file)
+	{
+		if (file.type() != FileType.Classpath && file.file().exists())
+		{
+			RandomAccessFile raf = null;
+			try
+			{
+				raf = new RandomAccessFile(file.file(), "r");
+				FileChannel channel = raf.getChannel();
+				return wrap(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+			} catch (IOException e)
+			{
+				throw new GdxRuntimeException("Couldn't map compiled level: " + file.path(), e);
+			} finally
+			{
+				// the mapping stays valid after the file is closed
+				if (raf != null) try { raf.close(); } catch (IOException ignored) { }
+			}
+		}
+		return wrap(ByteBuffer.wrap(file.readBytes()));
+	}
+
+	/**
+	 * wrap the content of a compiled level file once its header and record counts are checked
+	 * @param data file content
+	 * @return level data, null if the header is wrong or the records don't fit the file
+	 */
+	private static LevelData wrap (ByteBuffer data)
+	{
+		if (data.limit() < HEADER_SIZE || data.getInt(OFFSET_MAGIC) != MAGIC || data.getInt(OFFSET_VERSION) != VERSION)
+			return null;
+		int rockCount = data.getInt(OFFSET_ROCK_COUNT);
+		int goldCoinCount = data.getInt(OFFSET_GOLD_COIN_COUNT);
+		int featherCount = data.getInt(OFFSET_FEATHER_COUNT);
+		if (rockCount < 0 || goldCoinCount < 0 || featherCount < 0) return null;
+		// counts of a corrupt file can overflow an int
+		long size = HEADER_SIZE + (long)rockCount * ROCK_RECORD_SIZE + ((long)goldCoinCount + featherCount) * ITEM_RECORD_SIZE;
+		if (size > data.limit()) return null;
+		return new LevelData(data);
+	}
+
+	/**
+	 * decode a level image: one pass over the pixel buffer classifies every pixel
+	 * through the color lookup table and counts the objects, a second pass writes the records
+	 * large images are split into bands that are decoded in parallel
+	 * @param pixmap level image
+	 * @param sourceHash hash of the level image file, 0 for generated images
+	 * @return level data
+	 */
+	public static LevelData fromPixmap (Pixmap pixmap, long sourceHash)
+	{
+		int pixels = pixmap.getWidth() * pixmap.getHeight();
+		int numBands = pixels < PARALLEL_MIN_PIXELS ? 1 : Runtime.getRuntime().availableProcessors();
+		return fromPixmap(pixmap, sourceHash, numBands);
+	}
+
+	/**
+	 * decode a level image split into bands of consecutive pixels in scan order, each band is
+	 * classified and written on its own thread, the result is the same for any number of bands
+	 * @param pixmap level image
+	 * @param sourceHash hash of the level image file, 0 for generated images
+	 * @param numBands number of bands, 1 decodes on the calling thread
+	 * @return level data
+	 */
+	public static LevelData fromPixmap (Pixmap pixmap, long sourceHash, int numBands)
+	{
+		final int width = pixmap.getWidth();
+		final int height = pixmap.getHeight();
+		int size = width * height;
+		numBands = MathUtils.clamp(numBands, 1, Math.max(1, size));
+
+		// bulk reads need 4 bytes per pixel in r, g, b, a order
+		Pixmap rgba = pixmap;
+		if (pixmap.getFormat() != Format.RGBA8888)
+		{
+			rgba = new Pixmap(width, height, Format.RGBA8888);
+			Blending blending = Pixmap.getBlending();
+			Pixmap.setBlending(Blending.None);
+			rgba.drawPixmap(pixmap, 0, 0);
+			Pixmap.setBlending(blending);
+		}
+
+		final ByteBuffer pixels = rgba.getPixels();
+		final byte[] blocks = new byte[size];
+		final Band[] bands = new Band[numBands];
+		for (int i = 0; i < numBands; i++)
+			bands[i] = new Band((int)((long)size * i / numBands), (int)((long)size * (i + 1) / numBands));
+
+		// classify all bands, a rock run crossing into the next band was counted twice
+		run(bands, new BandTask()
+		{
+			@Override
+			public void run (Band band)
+			{
+				classifyPixels(pixels, blocks, band, width);
+			}
+		});
+		if (rgba != pixmap)
+			rgba.dispose();
+
+		int rock = BLOCK_TYPE.ROCK.ordinal();
+		int rockCount = 0;
+		int goldCoinCount = 0;
+		int featherCount = 0;
+		for (Band band : bands)
+		{
+			if (band.start > 0 && blocks[band.start - 1] == rock && blocks[band.start] == rock)
+				band.counts[rock]--;
+			band.firstRock = rockCount;
+			band.firstGoldCoin = goldCoinCount;
+			band.firstFeather = featherCount;
+			rockCount += band.counts[rock];
+			goldCoinCount += band.counts[BLOCK_TYPE.ITEM_GOLD_COIN.ordinal()];
+			featherCount += band.counts[BLOCK_TYPE.ITEM_FEATHER.ordinal()];
+		}
+
+		// write the records of all bands, every band starts at its own record indices
+		final LevelData levelData = allocate(width, height, rockCount, goldCoinCount, featherCount, sourceHash);
+		run(bands, new BandTask()
+		{
+			@Override
+			public void run (Band band)
+			{
+				levelData.putRecords(blocks, band, width, height);
+			}
+		});
+
+		// rock runs continued from an earlier band are added to the rock that run started with,
+		// the last spawn point and goal in scan order win
+		ByteBuffer data = levelData.data;
+		int minX = Integer.MAX_VALUE;
+		int maxX = Integer.MIN_VALUE;
+		int minRow = Integer.MAX_VALUE;
+		int maxRow = Integer.MIN_VALUE;
+		for (Band band : bands)
+		{
+			if (band.leadingRockLength > 0)
+				levelData.increaseRockLength(band.firstRock - 1, band.leadingRockLength);
+			if (band.spawn != NONE)
+			{
+				data.putInt(OFFSET_SPAWN_X, band.spawn % width);
+				data.putInt(OFFSET_SPAWN_ROW, height - band.spawn / width);
+			}
+			if (band.goal != NONE)
+			{
+				data.putInt(OFFSET_GOAL_X, band.goal % width);
+				data.putInt(OFFSET_GOAL_ROW, height - band.goal / width);
+			}
+			minX = Math.min(minX, band.minX);
+			maxX = Math.max(maxX, band.maxX);
+			minRow = Math.min(minRow, band.minRow);
+			maxRow = Math.max(maxRow, band.maxRow);
+		}
+		levelData.putBounds(minX, maxX, minRow, maxRow);
+		return levelData;
+	}
+
+	/**
+	 * build a level from a Tiled map: every run of tiles in the rock layer becomes a rock,
+	 * objects in the object layer are typed (or named) after the block types they stand for
+	 * (ITEM_GOLD_COIN, ITEM_FEATHER, PLAYER_SPAWNPOINT, GOAL, ROCK), all other layers are decoration
+	 * @param map
+	 * @return level data
+	 */
+	public static LevelData fromTiledMap (TiledMap map)
+	{
+		MapProperties properties = map.getProperties();
+		int width = properties.get("width", Integer.class);
+		int height = properties.get("height", Integer.class);
+		float tileWidth = properties.get("tilewidth", Integer.class);
+		float tileHeight = properties.get("tileheight", Integer.class);
+
+		IntArray rocks = new IntArray();
+		IntArray goldCoins = new IntArray();
+		IntArray feathers = new IntArray();
+
+		// tile layer rows count from the bottom, level rows start at 1
+		MapLayer layer = map.getLayers().get(TMX_ROCK_LAYER);
+		if (layer instanceof TiledMapTileLayer)
+		{
+			TiledMapTileLayer rockLayer = (TiledMapTileLayer)layer;
+			for (int y = 0; y < rockLayer.getHeight(); y++)
+			{
+				int length = 0;
+				for (int x = 0; x <= rockLayer.getWidth(); x++)
+				{
+					// consecutive rock tiles are merged into one rock
+					if (x < rockLayer.getWidth() && rockLayer.getCell(x, y) != null)
+					{
+						length++;
+						continue;
+					}
+					if (length > 0)
+					{
+						rocks.add(x - length);
+						rocks.add(y + 1);
+						rocks.add(length);
+					}
+					length = 0;
+				}
+			}
+		}
+
+		int spawnX = NONE;
+		int spawnRow = NONE;
+		int goalX = NONE;
+		int goalRow = NONE;
+		layer = map.getLayers().get(TMX_OBJECT_LAYER);
+		if (layer != null)
+		{
+			Rectangle bounds = new Rectangle();
+			for (MapObject object : layer.getObjects())
+			{
+				String kind = object.getProperties().get("type", object.getName(), String.class);
+				BLOCK_TYPE type = null;
+				for (BLOCK_TYPE blockType : BLOCK_TYPES)
+				{
+					if (blockType.name().equalsIgnoreCase(kind))
+						type = blockType;
+				}
+				if (type == null || !getBounds(object, bounds))
+				{
+					Gdx.app.error(TAG, "Unknown object '" + kind + "' at x<" + object.getProperties().get("x") + "> y<"
+							+ object.getProperties().get("y") + ">");
+					continue;
+				}
+
+				// objects take the cell under their center
+				int x = MathUtils.clamp((int)((bounds.x + bounds.width / 2) / tileWidth), 0, width - 1);
+				int row = MathUtils.clamp((int)((bounds.y + bounds.height / 2) / tileHeight) + 1, 1, height);
+				switch (type)
+				{
+				case ROCK:
+					int firstX = MathUtils.clamp(Math.round(bounds.x / tileWidth), 0, width - 1);
+					rocks.add(firstX);
+					rocks.add(row);
+					rocks.add(MathUtils.clamp(Math.round(bounds.width / tileWidth), 1, width - firstX));
+					break;
+				case PLAYER_SPAWNPOINT:
+					spawnX = x;
+					spawnRow = row;
+					break;
+				case ITEM_FEATHER:
+					feathers.add(x);
+					feathers.add(row);
+					break;
+				case ITEM_GOLD_COIN:
+					goldCoins.add(x);
+					goldCoins.add(row);
+					break;
+				case GOAL:
+					goalX = x;
+					goalRow = row;
+					break;
+				default:
+					break;
+				}
+			}
+		}
+		return fromRecords(width, height, rocks, goldCoins, feathers, spawnX, spawnRow, goalX, goalRow);
+	}
+
+	/**
+	 * bounds of a map object in map pixels, y up
+	 * @param object
+	 * @param bounds receives the bounds
+	 * @return false for shapes that have no use in a level (polygons, polylines)
+	 */
+	private static boolean getBounds (MapObject object, Rectangle bounds)
+	{
+		if (object instanceof RectangleMapObject)
+		{
+			bounds.set(((RectangleMapObject)object).getRectangle());
+		} else if (object instanceof EllipseMapObject)
+		{
+			Ellipse ellipse = ((EllipseMapObject)object).getEllipse();
+			bounds.set(ellipse.x, ellipse.y, ellipse.width, ellipse.height);
+		} else if (object instanceof TextureMapObject)
+		{
+			TextureMapObject tile = (TextureMapObject)object;
+			bounds.set(tile.getX(), tile.getY(), tile.getTextureRegion().getRegionWidth() * tile.getScaleX(),
+					tile.getTextureRegion().getRegionHeight() * tile.getScaleY());
+		} else
+		{
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * build a level from object records instead of a level image, the records are stored in the
+	 * same order a level image would produce them (top row first, left to right)
+	 * @param width level width in cells
+	 * @param height level height in cells
+	 * @param rocks x, row and length of every rock
+	 * @param goldCoins x and row of every gold coin
+	 * @param feathers x and row of every feather
+	 * @param spawnX spawn point column, NONE for no spawn point
+	 * @param spawnRow spawn point row
+	 * @param goalX goal column, NONE for no goal
+	 * @param goalRow goal row
+	 * @return level data
+	 */
+	public static LevelData fromRecords (int width, int height, IntArray rocks, IntArray goldCoins, IntArray feathers,
+			int spawnX, int spawnRow, int goalX, int goalRow)
+	{
+		LevelData levelData = allocate(width, height, rocks.size / 3, goldCoins.size / 2, feathers.size / 2, 0);
+		ByteBuffer data = levelData.data;
+		int minX = Integer.MAX_VALUE;
+		int maxX = Integer.MIN_VALUE;
+		int minRow = Integer.MAX_VALUE;
+		int maxRow = Integer.MIN_VALUE;
+
+		int[] order = scanOrder(rocks, 3, width, height);
+		for (int i = 0; i < order.length; i++)
+		{
+			int record = order[i] * 3;
+			int x = rocks.get(record);
+			int row = rocks.get(record + 1);
+			int length = rocks.get(record + 2);
+			levelData.putRock(i, x, row, length);
+			minX = Math.min(minX, x);
+			maxX = Math.max(maxX, x + length);
+			minRow = Math.min(minRow, row);
+			maxRow = Math.max(maxRow, row);
+		}
+		order = scanOrder(goldCoins, 2, width, height);
+		for (int i = 0; i < order.length; i++)
+		{
+			int x = goldCoins.get(order[i] * 2);
+			int row = goldCoins.get(order[i] * 2 + 1);
+			levelData.putItem(levelData.goldCoinOffset, i, x, row);
+			minX = Math.min(minX, x);
+			maxX = Math.max(maxX, x + 1);
+			minRow = Math.min(minRow, row);
+			maxRow = Math.max(maxRow, row);
+		}
+		order = scanOrder(feathers, 2, width, height);
+		for (int i = 0; i < order.length; i++)
+		{
+			int x = feathers.get(order[i] * 2);
+			int row = feathers.get(order[i] * 2 + 1);
+			levelData.putItem(levelData.featherOffset, i, x, row);
+			minX = Math.min(minX, x);
+			maxX = Math.max(maxX, x + 1);
+			minRow = Math.min(minRow, row);
+			maxRow = Math.max(maxRow, row);
+		}
+
+		if (spawnX != NONE)
+		{
+			data.putInt(OFFSET_SPAWN_X, spawnX);
+			data.putInt(OFFSET_SPAWN_ROW, spawnRow);
+			minX = Math.min(minX, spawnX);
+			maxX = Math.max(maxX, spawnX + 1);
+			minRow = Math.min(minRow, spawnRow);
+			maxRow = Math.max(maxRow, spawnRow);
+		}
+		if (goalX != NONE)
+		{
+			data.putInt(OFFSET_GOAL_X, goalX);
+			data.putInt(OFFSET_GOAL_ROW, goalRow);
+			minX = Math.min(minX, goalX);
+			maxX = Math.max(maxX, goalX + 1);
+			minRow = Math.min(minRow, goalRow);
+			maxRow = Math.max(maxRow, goalRow);
+		}
+		levelData.putBounds(minX, maxX, minRow, maxRow);
+		return levelData;
+	}
+
+	/**
+	 * sort records into level image scan order: two stable counting sorts, by column then by row
+	 * @param records record fields, x and row first
+	 * @param stride fields per record
+	 * @param width level width in cells
+	 * @param height level height in cells
+	 * @return record indices in scan order
+	 */
+	private static int[] scanOrder (IntArray records, int stride, int width, int height)
+	{
+		int count = records.size / stride;
+		int[] byX = new int[count];
+		int[] start = new int[width + 1];
+		for (int i = 0; i < count; i++)
+		{
+			int x = records.get(i * stride);
+			if (x < 0 || x >= width)
+				throw new GdxRuntimeException("Record outside of level: x<" + x + "> width<" + width + ">");
+			start[x + 1]++;
+		}
+		for (int x = 1; x <= width; x++)
+			start[x] += start[x - 1];
+		for (int i = 0; i < count; i++)
+			byX[start[records.get(i * stride)]++] = i;
+
+		// rows count from the bottom, the top row comes first
+		int[] order = new int[count];
+		start = new int[height + 2];
+		for (int i = 0; i < count; i++)
+		{
+			int row = records.get(i * stride + 1);
+			if (row < 1 || row > height)
+				throw new GdxRuntimeException("Record outside of level: row<" + row + "> height<" + height + ">");
+			start[height - row + 1]++;
+		}
+		for (int pixelY = 1; pixelY <= height; pixelY++)
+			start[pixelY] += start[pixelY - 1];
+		for (int i = 0; i < count; i++)
+		{
+			int record = byX[i];
+			order[start[height - records.get(record * stride + 1)]++] = record;
+		}
+		return order;
+	}
+
+	/**
+	 * create a level with room for the given number of records and an empty header
+	 * @param width
+	 * @param height
+	 * @param rockCount
+	 * @param goldCoinCount
+	 * @param featherCount
+	 * @param sourceHash
+	 * @return level data without spawn point and goal
+	 */
+	private static LevelData allocate (int width, int height, int rockCount, int goldCoinCount, int featherCount,
+			long sourceHash)
+	{
+		ByteBuffer data = ByteBuffer.allocate(HEADER_SIZE + rockCount * ROCK_RECORD_SIZE
+				+ (goldCoinCount + featherCount) * ITEM_RECORD_SIZE);
+		data.putInt(OFFSET_MAGIC, MAGIC);
+		data.putInt(OFFSET_VERSION, VERSION);
+		data.putLong(OFFSET_SOURCE_HASH, sourceHash);
+		data.putInt(OFFSET_WIDTH, width);
+		data.putInt(OFFSET_HEIGHT, height);
+		data.putInt(OFFSET_ROCK_COUNT, rockCount);
+		data.putInt(OFFSET_GOLD_COIN_COUNT, goldCoinCount);
+		data.putInt(OFFSET_FEATHER_COUNT, featherCount);
+		data.putInt(OFFSET_SPAWN_X, NONE);
+		data.putInt(OFFSET_SPAWN_ROW, NONE);
+		data.putInt(OFFSET_GOAL_X, NONE);
+		data.putInt(OFFSET_GOAL_ROW, NONE);
+		return new LevelData(data);
+	}
+
+	/**
+	 * classify the pixels of one band through the color lookup table
+	 * @param pixels rgba pixel buffer of the whole level image
+	 * @param blocks filled with the block type ordinal per pixel in scan order, UNKNOWN_BLOCK for unknown colors
+	 * @param band receives the number of objects per block type (rock runs for rocks)
+	 * @param width image width
+	 */
+	private static void classifyPixels (ByteBuffer pixels, byte[] blocks, Band band, int width)
+	{
+		boolean littleEndian = pixels.order() == ByteOrder.LITTLE_ENDIAN;
+		int[] counts = band.counts;
+		int rock = BLOCK_TYPE.ROCK.ordinal();
+		int lastBlock = UNKNOWN_BLOCK;
+		for (int i = band.start, offset = band.start * 4; i < band.end; i++, offset += 4)
+		{
+			// get color of current pixel as 32-bit RGBA value
+			int currentPixel = pixels.getInt(offset);
+			if (littleEndian)
+				currentPixel = Integer.reverseBytes(currentPixel);
+			BLOCK_TYPE type = BLOCK_TYPE.fromColor(currentPixel);
+
+			// unknown object/pixel color
+			if (type == null)
+			{
+				int r = 0xff & (currentPixel >>> 24);	// red color channel
+				int g = 0xff & (currentPixel >>> 16);	// green color channel
+				int b = 0xff & (currentPixel >>> 8);	// blue color channel
+				int a = 0xff & currentPixel;	// alpha color channel
+				Gdx.app.error(TAG, "Unknown object at x<" + (i % width) + "> y<" + (i / width) + ">: r<" + r + "> g<" + g +
+						"> b<" + b + "> a<" + a + ">");
+				blocks[i] = UNKNOWN_BLOCK;
+				lastBlock = UNKNOWN_BLOCK;
+				continue;
+			}
+
+			int block = type.ordinal();
+			blocks[i] = (byte)block;
+			// consecutive rock pixels are merged into one rock
+			if (block != rock || lastBlock != rock)
+				counts[block]++;
+			lastBlock = block;
+		}
+	}
+
+	/**
+	 * write the records of one band, scanning blocks from top left to bottom right
+	 * @param blocks block type ordinal per pixel
+	 * @param band
+	 * @param width image width
+	 * @param height image height
+	 */
+	private void putRecords (byte[] blocks, Band band, int width, int height)
+	{
+		int rock = band.firstRock;
+		int goldCoin = band.firstGoldCoin;
+		int feather = band.firstFeather;
+		int lastBlock = band.start > 0 ? blocks[band.start - 1] : UNKNOWN_BLOCK;
+		for (int i = band.start; i < band.end; i++)
+		{
+			int block = blocks[i];
+			if (block == UNKNOWN_BLOCK || block == BLOCK_TYPE.EMPTY.ordinal())
+			{
+				lastBlock = block;
+				continue;
+			}
+
+			int pixelX = i % width;
+			// height grows from bottom to top
+			int row = height - i / width;
+			switch (BLOCK_TYPES[block])
+			{
+			case ROCK:
+				// consecutive rock pixels are merged into one rock, a run from the previous band
+				// is finished once all bands are written
+				if (lastBlock != block)
+					putRock(rock++, pixelX, row, 1);
+				else if (rock == band.firstRock)
+					band.leadingRockLength++;
+				else
+					increaseRockLength(rock - 1, 1);
+				break;
+			case PLAYER_SPAWNPOINT:
+				band.spawn = i;
+				break;
+			case ITEM_FEATHER:
+				putItem(featherOffset, feather++, pixelX, row);
+				break;
+			case ITEM_GOLD_COIN:
+				putItem(goldCoinOffset, goldCoin++, pixelX, row);
+				break;
+			case GOAL:
+				band.goal = i;
+				break;
+			default:
+				break;
+			}
+			band.minX = Math.min(band.minX, pixelX);
+			band.maxX = Math.max(band.maxX, pixelX + 1);
+			band.minRow = Math.min(band.minRow, row);
+			band.maxRow = Math.max(band.maxRow, row);
+			lastBlock = block;
+		}
+	}
+
+	/**
+	 * run a task for every band, on the decoder threads when there is more than one band
+	 * @param bands
+	 * @param task
+	 */
+	private static void run (Band[] bands, final BandTask task)
+	{
+		if (bands.length == 1)
+		{
+			task.run(bands[0]);
+			return;
+		}
+
+		List<Callable<Void>> calls = new ArrayList<Callable<Void>>(bands.length);
+		for (final Band band : bands)
+		{
+			calls.add(new Callable<Void>()
+			{
+				@Override
+				public Void call ()
+				{
+					task.run(band);
+					return null;
+				}
+			});
+		}
+		try
+		{
+			for (Future<Void> future : getDecoderThreads().invokeAll(calls))
+				future.get();
+		} catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new GdxRuntimeException("Interrupted while decoding level", e);
+		} catch (ExecutionException e)
+		{
+			throw new GdxRuntimeException("Couldn't decode level", e.getCause());
+		}
+	}
+
+	/**
+	 * threads shared by all parallel decodes, created on first use
+	 * @return executor
+	 */
+	private static synchronized ExecutorService getDecoderThreads ()
+	{
+		if (decoderThreads == null)
+		{
+			decoderThreads = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory()
+			{
+				@Override
+				public Thread newThread (Runnable runnable)
+				{
+					// never keep the application alive
+					Thread thread = new Thread(runnable, "LevelDecoder");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return decoderThreads;
+	}
+
+	/**
+	 * write the level in the compiled format
+	 * @param file
+	 */
+	public void write (FileHandle file)
+	{
+		ByteBuffer bytes = data.duplicate();
+		bytes.clear();
+		byte[] content = new byte[bytes.remaining()];
+		bytes.get(content);
+		file.writeBytes(content, false);
+	}
+
+	private void putRock (int index, int x, int row, int length)
+	{
+		int offset = rockOffset + index * ROCK_RECORD_SIZE;
+		data.putInt(offset, x);
+		data.putInt(offset + 4, row);
+		data.putInt(offset + 8, length);
+	}
+
+	private void increaseRockLength (int index, int length)
+	{
+		int offset = rockOffset + index * ROCK_RECORD_SIZE + 8;
+		data.putInt(offset, data.getInt(offset) + length);
+	}
+
+	private void putItem (int recordOffset, int index, int x, int row)
+	{
+		int offset = recordOffset + index * ITEM_RECORD_SIZE;
+		data.putInt(offset, x);
+		data.putInt(offset + 4, row);
+	}
+
+	/**
+	 * store the bounds of all objects in level cells, empty levels span the whole level
+	 * @param minX
+	 * @param maxX
+	 * @param minRow
+	 * @param maxRow
+	 */
+	private void putBounds (int minX, int maxX, int minRow, int maxRow)
+	{
+		if (minX > maxX)
+		{
+			minX = 0;
+			maxX = getWidth();
+			minRow = 0;
+			maxRow = getHeight();
+		}
+		data.putInt(OFFSET_MIN_X, minX);
+		data.putInt(OFFSET_MAX_X, maxX);
+		data.putInt(OFFSET_MIN_ROW, minRow);
+		data.putInt(OFFSET_MAX_ROW, maxRow);
+	}
+
+	/**
+	 * hash of the level image this level was built from
+	 * @return sourceHash
+	 */
+	public long getSourceHash ()
+	{
+		return data.getLong(OFFSET_SOURCE_HASH);
+	}
+
+	/**
+	 * level width in cells
+	 * @return width
+	 */
+	public int getWidth ()
+	{
+		return data.getInt(OFFSET_WIDTH);
+	}
+
+	/**
+	 * level height in cells
+	 * @return height
+	 */
+	public int getHeight ()
+	{
+		return data.getInt(OFFSET_HEIGHT);
+	}
+
+	/**
+	 * number of rocks (merged rock runs)
+	 * @return rockCount
+	 */
+	public int getRockCount ()
+	{
+		return data.getInt(OFFSET_ROCK_COUNT);
+	}
+
+	/**
+	 * number of gold coins
+	 * @return goldCoinCount
+	 */
+	public int getGoldCoinCount ()
+	{
+		return data.getInt(OFFSET_GOLD_COIN_COUNT);
+	}
+
+	/**
+	 * number of feathers
+	 * @return featherCount
+	 */
+	public int getFeatherCount ()
+	{
+		return data.getInt(OFFSET_FEATHER_COUNT);
+	}
+
+	/**
+	 * player spawn column
+	 * @return column or NONE
+	 */
+	public int getSpawnX ()
+	{
+		return data.getInt(OFFSET_SPAWN_X);
+	}
+
+	/**
+	 * player spawn row
+	 * @return row or NONE
+	 */
+	public int getSpawnRow ()
+	{
+		return data.getInt(OFFSET_SPAWN_ROW);
+	}
+
+	/**
+	 * goal column
+	 * @return column or NONE
+	 */
+	public int getGoalX ()
+	{
+		return data.getInt(OFFSET_GOAL_X);
+	}
+
+	/**
+	 * goal row
+	 * @return row or NONE
+	 */
+	public int getGoalRow ()
+	{
+		return data.getInt(OFFSET_GOAL_ROW);
+	}
+
+	/**
+	 * leftmost column covered by an object
+	 * @return minX
+	 */
+	public int getMinX ()
+	{
+		return data.getInt(OFFSET_MIN_X);
+	}
+
+	/**
+	 * column after the rightmost object
+	 * @return maxX
+	 */
+	public int getMaxX ()
+	{
+		return data.getInt(OFFSET_MAX_X);
+	}
+
+	/**
+	 * lowest row covered by an object
+	 * @return minRow
+	 */
+	public int getMinRow ()
+	{
+		return data.getInt(OFFSET_MIN_ROW);
+	}
+
+	/**
+	 * highest row covered by an object
+	 * @return maxRow
+	 */
+	public int getMaxRow ()
+	{
+		return data.getInt(OFFSET_MAX_ROW);
+	}
+
+	/**
+	 * rock column
+	 * @param index
+	 * @return rockX
+	 */
+	public int getRockX (int index)
+	{
+		return data.getInt(rockOffset + index * ROCK_RECORD_SIZE);
+	}
+
+	/**
+	 * rock row
+	 * @param index
+	 * @return rockRow
+	 */
+	public int getRockRow (int index)
+	{
+		return data.getInt(rockOffset + index * ROCK_RECORD_SIZE + 4);
+	}
+
+	/**
+	 * rock length in cells
+	 * @param index
+	 * @return rockLength
+	 */
+	public int getRockLength (int index)
+	{
+		return data.getInt(rockOffset + index * ROCK_RECORD_SIZE + 8);
+	}
+
+	/**
+	 * gold coin column
+	 * @param index
+	 * @return goldCoinX
+	 */
+	public int getGoldCoinX (int index)
+	{
+		return data.getInt(goldCoinOffset + index * ITEM_RECORD_SIZE);
+	}
+
+	/**
+	 * gold coin row
+	 * @param index
+	 * @return goldCoinRow
+	 */
+	public int getGoldCoinRow (int index)
+	{
+		return data.getInt(goldCoinOffset + index * ITEM_RECORD_SIZE + 4);
+	}
+
+	/**
+	 * feather column
+	 * @param index
+	 * @return featherX
+	 */
+	public int getFeatherX (int index)
+	{
+		return data.getInt(featherOffset + index * ITEM_RECORD_SIZE);
+	}
+
+	/**
+	 * feather row
+	 * @param index
+	 * @return featherRow
+	 */
+	public int getFeatherRow (int index)
+	{
+		return data.getInt(featherOffset + index * ITEM_RECORD_SIZE + 4);
+	}
+}
@@ -0,0 +1,271 @@
+package com.lashleygdx.game.world;
+
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Pixmap.Blending;
+import com.badlogic.gdx.graphics.Pixmap.Format;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.RandomXS128;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.IntArray;
+import com.lashleygdx.game.world.Level.BLOCK_TYPE;
+import com.lashleygdx.game.world.objects.Rock;
+
+/**
+ * seeded level generator for benchmarks and stress tests: rock platforms separated by gaps,
+ * gold coins and feathers above the platforms, spawn point on the first and goal on the last platform,
+ * and some lifts among the platforms of endless levels
+ * the same seed and settings always produce the same level, either all at once or
+ * chunk by chunk for endless levels
+ * @author Chris Lashley
+ */
+public class LevelGenerator
+{
+	public static final String TAG = LevelGenerator.class.getName();
+
+	// rows needed above a platform for its items
+	private static final int GOLD_COIN_HEIGHT = 3;
+	private static final int FEATHER_HEIGHT = 4;
+	private static final int MIN_HEIGHT = FEATHER_HEIGHT + 2;
+
+	public long seed = 0;
+	// level size in cells
+	public int width = 1024;
+	public int height = 32;
+	// fraction of the columns covered by rock, 0 < rockDensity <= 1
+	public float rockDensity = 0.75f;
+	public int minPlatformLength = 3;
+	public int maxPlatformLength = 12;
+	// gap lengths spread around their mean: 0 = all gaps equally long, 1 = from 1 up to twice the mean
+	public float gapSpread = 0.5f;
+	// largest change in height from one platform to the next
+	public int maxStep = 2;
+	// chance of a gold coin / feather above a platform column
+	public float goldCoinDensity = 0.25f;
+	public float featherDensity = 0.02f;
+	// chance of a platform of an endless level being a lift, level data has no rock paths
+	public float liftDensity = 0.2f;
+
+	private final RandomXS128 random = new RandomXS128();
+	private final IntArray rocks = new IntArray();
+	private final IntArray goldCoins = new IntArray();
+	private final IntArray feathers = new IntArray();
+
+	// chunk by chunk generation: next platform and the limits derived from the settings
+	private int nextX;
+	private int nextRow;
+	private int minRow;
+	private int maxRow;
+	private int minGap;
+	private int maxGap;
+
+	/**
+	 * generator with default settings and seed 0
+	 */
+	public LevelGenerator ()
+	{
+	}
+
+	/**
+	 * generator with default settings
+	 * @param seed
+	 */
+	public LevelGenerator (long seed)
+	{
+		this.seed = seed;
+	}
+
+	/**
+	 * generate a level
+	 * @return level data
+	 */
+	public LevelData generate ()
+	{
+		if (width < maxPlatformLength + 2)
+			throw new GdxRuntimeException("Level too small: width<" + width + "> height<" + height + ">");
+		begin();
+		rocks.clear();
+		goldCoins.clear();
+		feathers.clear();
+
+		// the last column stays empty so a platform never joins the next row in scan order
+		int end = width - 1;
+		int lastX = 0;
+		int lastRow = nextRow;
+		while (nextX < end)
+		{
+			lastX = nextX;
+			lastRow = nextRow;
+			nextPlatform(end, false, rocks, goldCoins, feathers);
+		}
+
+		return LevelData.fromRecords(width, height, rocks, goldCoins, feathers, 0, getSpawnRow(), lastX, lastRow + 1);
+	}
+
+	/**
+	 * start generating a level chunk by chunk, the width setting is ignored
+	 */
+	public void begin ()
+	{
+		if (height < MIN_HEIGHT)
+			throw new GdxRuntimeException("Level too small: width<" + width + "> height<" + height + ">");
+		if (rockDensity <= 0 || rockDensity > 1)
+			throw new GdxRuntimeException("Rock density out of range: " + rockDensity);
+
+		random.setSeed(seed);
+		// platforms stay low enough to leave room for their items
+		minRow = 1;
+		maxRow = height - FEATHER_HEIGHT;
+		float meanPlatformLength = (minPlatformLength + maxPlatformLength) / 2.0f;
+		float meanGap = meanPlatformLength * (1 - rockDensity) / rockDensity;
+		minGap = Math.max(1, MathUtils.round(meanGap * (1 - gapSpread)));
+		maxGap = Math.max(minGap, MathUtils.round(meanGap * (1 + gapSpread)));
+		nextX = 0;
+		nextRow = (minRow + maxRow) / 2;
+	}
+
+	/**
+	 * generate the next platforms of a level started with begin(), no objects are allocated
+	 * @param endX platforms starting before this column are generated
+	 * @param rocks receives x, row, length and path (Rock.PATH_) of every rock
+	 * @param goldCoins receives x and row of every gold coin
+	 * @param feathers receives x and row of every feather
+	 */
+	public void generateChunk (int endX, IntArray rocks, IntArray goldCoins, IntArray feathers)
+	{
+		while (nextX < endX)
+			nextPlatform(Integer.MAX_VALUE, true, rocks, goldCoins, feathers);
+	}
+
+	/**
+	 * row of the spawn point, above the first platform
+	 * @return row
+	 */
+	public int getSpawnRow ()
+	{
+		return (minRow + maxRow) / 2 + 1;
+	}
+
+	/**
+	 * longest rock this generator creates
+	 * @return length in cells
+	 */
+	public int getMaxRockLength ()
+	{
+		return maxPlatformLength;
+	}
+
+	/**
+	 * add the next platform and move on to the one after it
+	 * @param end first column the platform must not reach
+	 * @param withPaths true to add the path of every rock to its record
+	 * @param rocks
+	 * @param goldCoins
+	 * @param feathers
+	 */
+	private void nextPlatform (int end, boolean withPaths, IntArray rocks, IntArray goldCoins, IntArray feathers)
+	{
+		// the first platform is the longest so the bunny lands safely
+		int length = nextX == 0 ? maxPlatformLength : random(minPlatformLength, maxPlatformLength);
+		length = Math.min(length, end - nextX);
+		addPlatform(nextX, nextRow, length, rocks, goldCoins, feathers);
+		if (withPaths)
+		{
+			// the bunny spawns on the first platform, it stays where it is
+			boolean lift = nextX != 0 && random.nextFloat() < liftDensity;
+			rocks.add(lift ? Rock.PATH_LIFT : Rock.PATH_BOBBING);
+		}
+
+		nextX += length + random(minGap, maxGap);
+		nextRow = MathUtils.clamp(nextRow + random(-maxStep, maxStep), minRow, maxRow);
+	}
+
+	/**
+	 * generate a level and paint it as a level image
+	 * @return pixmap, dispose when done
+	 */
+	public Pixmap generatePixmap ()
+	{
+		return toPixmap(generate());
+	}
+
+	/**
+	 * paint a level as a level image
+	 * @param levelData
+	 * @return pixmap, dispose when done
+	 */
+	public static Pixmap toPixmap (LevelData levelData)
+	{
+		int width = levelData.getWidth();
+		int height = levelData.getHeight();
+		Pixmap pixmap = new Pixmap(width, height, Format.RGBA8888);
+		Blending blending = Pixmap.getBlending();
+		Pixmap.setBlending(Blending.None);
+		pixmap.setColor(BLOCK_TYPE.EMPTY.getColor());
+		pixmap.fill();
+
+		// height grows from bottom to top
+		int color = BLOCK_TYPE.ROCK.getColor();
+		for (int i = 0; i < levelData.getRockCount(); i++)
+		{
+			int x = levelData.getRockX(i);
+			int pixelY = height - levelData.getRockRow(i);
+			for (int j = 0; j < levelData.getRockLength(i); j++)
+				pixmap.drawPixel(x + j, pixelY, color);
+		}
+		color = BLOCK_TYPE.ITEM_GOLD_COIN.getColor();
+		for (int i = 0; i < levelData.getGoldCoinCount(); i++)
+			pixmap.drawPixel(levelData.getGoldCoinX(i), height - levelData.getGoldCoinRow(i), color);
+		color = BLOCK_TYPE.ITEM_FEATHER.getColor();
+		for (int i = 0; i < levelData.getFeatherCount(); i++)
+			pixmap.drawPixel(levelData.getFeatherX(i), height - levelData.getFeatherRow(i), color);
+		if (levelData.getSpawnX() != LevelData.NONE)
+			pixmap.drawPixel(levelData.getSpawnX(), height - levelData.getSpawnRow(),
+					BLOCK_TYPE.PLAYER_SPAWNPOINT.getColor());
+		if (levelData.getGoalX() != LevelData.NONE)
+			pixmap.drawPixel(levelData.getGoalX(), height - levelData.getGoalRow(), BLOCK_TYPE.GOAL.getColor());
+
+		Pixmap.setBlending(blending);
+		return pixmap;
+	}
+
+	/**
+	 * add a rock platform and the items above it
+	 * @param x first column
+	 * @param row
+	 * @param length
+	 * @param rocks
+	 * @param goldCoins
+	 * @param feathers
+	 */
+	private void addPlatform (int x, int row, int length, IntArray rocks, IntArray goldCoins, IntArray feathers)
+	{
+		rocks.add(x);
+		rocks.add(row);
+		rocks.add(length);
+		for (int i = 0; i < length; i++)
+		{
+			// no items above the spawn point
+			if (x + i == 0) continue;
+			if (random.nextFloat() < goldCoinDensity)
+			{
+				goldCoins.add(x + i);
+				goldCoins.add(row + GOLD_COIN_HEIGHT);
+			} else if (random.nextFloat() < featherDensity)
+			{
+				feathers.add(x + i);
+				feathers.add(row + FEATHER_HEIGHT);
+			}
+		}
+	}
+
+	/**
+	 * seeded random number
+	 * @param min
+	 * @param max
+	 * @return min to max inclusive
+	 */
+	private int random (int min, int max)
+	{
+		return min + random.nextInt(max - min + 1);
+	}
+}
@@ -0,0 +1,93 @@
+package com.lashleygdx.game.world;
+
+import com.badlogic.gdx.assets.AssetDescriptor;
+import com.badlogic.gdx.assets.AssetLoaderParameters;
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.assets.loaders.AsynchronousAssetLoader;
+import com.badlogic.gdx.assets.loaders.FileHandleResolver;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.maps.tiled.TiledMap;
+import com.badlogic.gdx.maps.tiled.TmxMapLoader;
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * loads levels through the asset manager: the level file is decoded and all
+ * level objects are created on the asset manager's loader thread
+ * Tiled maps are loaded by a TmxMapLoader, their tile set textures become dependencies of the level
+ * @author Chris Lashley
+ */
+public class LevelLoader extends AsynchronousAssetLoader<Level, LevelLoader.LevelParameter>
+{
+	private Level level;
+	private final TmxMapLoader tmxMapLoader;
+
+	/**
+	 * level loading parameters (none yet)
+	 * @author Chris Lashley
+	 */
+	public static class LevelParameter extends AssetLoaderParameters<Level>
+	{
+	}
+
+	/**
+	 * constructor
+	 * @param resolver
+	 */
+	public LevelLoader (FileHandleResolver resolver)
+	{
+		super(resolver);
+		tmxMapLoader = new TmxMapLoader(resolver);
+	}
+
+	/**
+	 * check for Tiled maps
+	 * @param file
+	 * @return true if the level is a Tiled map
+	 */
+	private static boolean isTiledMap (FileHandle file)
+	{
+		return LevelData.TMX_EXTENSION.equals(file.extension());
+	}
+
+	/**
+	 * level images only need the textures and particles loaded by Assets.init,
+	 * Tiled maps also need their tile set textures
+	 */
+	@Override
+	public Array<AssetDescriptor> getDependencies (String fileName, FileHandle file, LevelParameter parameter)
+	{
+		if (isTiledMap(file))
+			return tmxMapLoader.getDependencies(fileName, file, null);
+		return null;
+	}
+
+	/**
+	 * build the level on the loader thread
+	 */
+	@Override
+	public void loadAsync (AssetManager manager, String fileName, FileHandle file, LevelParameter parameter)
+	{
+		if (isTiledMap(file))
+		{
+			// the tmx loader builds the whole map in loadAsync, loadSync only hands it out
+			tmxMapLoader.loadAsync(manager, fileName, file, null);
+			TiledMap map = tmxMapLoader.loadSync(manager, fileName, file, null);
+			level = new Level(LevelData.fromTiledMap(map), map);
+		}
+		else
+		{
+			level = new Level(file);
+		}
+	}
+
+	/**
+	 * hand the finished level to the render thread
+	 */
+	@Override
+	public Level loadSync (AssetManager manager, String fileName, FileHandle file, LevelParameter parameter)
+	{
+		Level level = this.level;
+		this.level = null;
+		return level;
+	}
+}
@@ -0,0 +1,496 @@
+package com.lashleygdx.game.world;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Bits;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntMap;
+import com.badlogic.gdx.utils.Pool;
+import com.lashleygdx.game.util.Constants;
+import com.lashleygdx.game.world.objects.AbstractGameObject;
+import com.lashleygdx.game.world.objects.Feather;
+import com.lashleygdx.game.world.objects.GoldCoin;
+import com.lashleygdx.game.world.objects.Rock;
+
+/**
+ * streams a level in chunks: objects only exist for the chunks in a window around the camera,
+ * chunks that leave the window are evicted and their objects recycled
+ * endless levels generate their chunks ahead of the camera and never go back
+ * @author Chris Lashley
+ */
+public class LevelStreamer
+{
+	public static final String TAG = LevelStreamer.class.getName();
+
+	/**
+	 * notified when rocks and items enter or leave the level so their box2d bodies can follow,
+	 * recycled objects keep their body while they wait for their next use
+	 * @author Chris Lashley
+	 */
+	public interface Listener
+	{
+		public void rockAdded (Rock rock);
+
+		public void rockRemoved (Rock rock);
+
+		public void itemAdded (AbstractGameObject item);
+
+		public void itemRemoved (AbstractGameObject item);
+	}
+
+	/**
+	 * objects materialized for one chunk
+	 * @author Chris Lashley
+	 */
+	private static class Chunk
+	{
+		int index;
+		// generated records of endless levels, x, row, length and path of each rock and x, row of each item
+		final IntArray rockRecords = new IntArray();
+		final IntArray goldCoinRecords = new IntArray();
+		final IntArray featherRecords = new IntArray();
+		final Array<Rock> rocks = new Array<Rock>();
+		final Array<GoldCoin> goldCoins = new Array<GoldCoin>();
+		final Array<Feather> feathers = new Array<Feather>();
+	}
+
+	private final Level level;
+	private final LevelData levelData;
+	// record source of endless levels, null for level data
+	private final LevelGenerator generator;
+	private Listener listener;
+
+	private final int chunkWidth;
+	private final int numChunks;
+	// rocks are indexed by the chunk they start in, long rocks reach into later chunks
+	private final int rockLookBehind;
+
+	// record indices grouped by chunk: records of chunk c are order[start[c]] to order[start[c + 1] - 1]
+	private int[] rockStart;
+	private int[] rockOrder;
+	private int[] goldCoinStart;
+	private int[] goldCoinOrder;
+	private int[] featherStart;
+	private int[] featherOrder;
+
+	// collected items survive their chunk being evicted
+	private Bits collectedGoldCoins;
+	private Bits collectedFeathers;
+
+	// chunk at world x = 0, moved ahead with the level origin
+	private int originChunk;
+
+	// chunks with objects, firstChunk to lastChunk
+	private final Array<Chunk> liveChunks;
+	private int firstChunk;
+	private int lastChunk;
+
+	private final Pool<Chunk> chunkPool = new Pool<Chunk>()
+	{
+		@Override
+		protected Chunk newObject ()
+		{
+			return new Chunk();
+		}
+	};
+
+	// rocks are recycled with their box2d body, so only rocks of the same length are interchangeable
+	private final IntMap<Pool<Rock>> rockPools = new IntMap<Pool<Rock>>();
+
+	private final Pool<GoldCoin> goldCoinPool = new Pool<GoldCoin>()
+	{
+		@Override
+		protected GoldCoin newObject ()
+		{
+			return new GoldCoin();
+		}
+	};
+
+	private final Pool<Feather> featherPool = new Pool<Feather>()
+	{
+		@Override
+		protected Feather newObject ()
+		{
+			return new Feather();
+		}
+	};
+
+	/**
+	 * index the level records by chunk
+	 * @param level level that receives the materialized objects
+	 * @param levelData
+	 */
+	public LevelStreamer (Level level, LevelData levelData)
+	{
+		this.level = level;
+		this.levelData = levelData;
+		generator = null;
+		chunkWidth = Constants.LEVEL_CHUNK_WIDTH;
+		numChunks = Math.max(1, (levelData.getWidth() + chunkWidth - 1) / chunkWidth);
+
+		int numRocks = levelData.getRockCount();
+		int maxRockLength = 0;
+		int[] chunks = new int[numRocks];
+		for (int i = 0; i < numRocks; i++)
+		{
+			chunks[i] = chunkOf(levelData.getRockX(i));
+			maxRockLength = Math.max(maxRockLength, levelData.getRockLength(i));
+		}
+		rockStart = new int[numChunks + 1];
+		rockOrder = groupByChunk(chunks, rockStart);
+		rockLookBehind = (maxRockLength + chunkWidth - 1) / chunkWidth;
+
+		int numGoldCoins = levelData.getGoldCoinCount();
+		chunks = new int[numGoldCoins];
+		for (int i = 0; i < numGoldCoins; i++)
+			chunks[i] = chunkOf(levelData.getGoldCoinX(i));
+		goldCoinStart = new int[numChunks + 1];
+		goldCoinOrder = groupByChunk(chunks, goldCoinStart);
+
+		int numFeathers = levelData.getFeatherCount();
+		chunks = new int[numFeathers];
+		for (int i = 0; i < numFeathers; i++)
+			chunks[i] = chunkOf(levelData.getFeatherX(i));
+		featherStart = new int[numChunks + 1];
+		featherOrder = groupByChunk(chunks, featherStart);
+
+		collectedGoldCoins = new Bits(numGoldCoins);
+		collectedFeathers = new Bits(numFeathers);
+		liveChunks = new Array<Chunk>();
+		firstChunk = 0;
+		lastChunk = -1;
+	}
+
+	/**
+	 * stream an endless level, chunks are generated as the window moves ahead
+	 * @param level level that receives the materialized objects
+	 * @param generator
+	 */
+	public LevelStreamer (Level level, LevelGenerator generator)
+	{
+		this.level = level;
+		this.generator = generator;
+		levelData = null;
+		chunkWidth = Constants.LEVEL_CHUNK_WIDTH;
+		numChunks = Integer.MAX_VALUE;
+		rockLookBehind = (generator.getMaxRockLength() + chunkWidth - 1) / chunkWidth;
+		liveChunks = new Array<Chunk>();
+		generator.begin();
+		firstChunk = 0;
+		lastChunk = -1;
+	}
+
+	/**
+	 * check for endless levels
+	 * @return true if chunks are generated
+	 */
+	public boolean isEndless ()
+	{
+		return generator != null;
+	}
+
+	/**
+	 * group record indices by chunk (counting sort)
+	 * @param chunks chunk of every record
+	 * @param start filled with the first slot of every chunk, start[numChunks] is the record count
+	 * @return record indices ordered by chunk
+	 */
+	private static int[] groupByChunk (int[] chunks, int[] start)
+	{
+		for (int i = 0; i < chunks.length; i++)
+			start[chunks[i] + 1]++;
+		for (int c = 1; c < start.length; c++)
+			start[c] += start[c - 1];
+
+		int[] cursor = start.clone();
+		int[] order = new int[chunks.length];
+		for (int i = 0; i < chunks.length; i++)
+			order[cursor[chunks[i]]++] = i;
+		return order;
+	}
+
+	/**
+	 * chunk containing a level column
+	 * @param x
+	 * @return chunk index
+	 */
+	private int chunkOf (int x)
+	{
+		return MathUtils.clamp(x / chunkWidth, 0, numChunks - 1);
+	}
+
+	/**
+	 * set the listener that creates and destroys box2d bodies
+	 * @param listener
+	 */
+	public void setListener (Listener listener)
+	{
+		this.listener = listener;
+	}
+
+	/**
+	 * width of the streamed window in level cells
+	 * @return window width
+	 */
+	public float getWindowWidth ()
+	{
+		return (Constants.LEVEL_CHUNKS_BEHIND + Constants.LEVEL_CHUNKS_AHEAD + 1) * chunkWidth;
+	}
+
+	/**
+	 * number of chunks that currently have objects
+	 * @return live chunks
+	 */
+	public int getLiveChunkCount ()
+	{
+		return liveChunks.size;
+	}
+
+	/**
+	 * follow the level origin, world positions passed to update are relative to it
+	 * @param shiftX columns the origin moved ahead, a multiple of the chunk width
+	 */
+	public void shiftOrigin (int shiftX)
+	{
+		if (shiftX % chunkWidth != 0)
+			throw new GdxRuntimeException("Origin shift not a multiple of the chunk width: " + shiftX);
+		originChunk += shiftX / chunkWidth;
+	}
+
+	/**
+	 * move the window of live chunks to the camera position
+	 * @param centerX camera position
+	 */
+	public void update (float centerX)
+	{
+		// chunks counted from the origin chunk keep the float small however long the level is
+		int center = MathUtils.clamp(originChunk + MathUtils.floor(centerX / chunkWidth), 0, numChunks - 1);
+		int first = Math.max(0, center - Constants.LEVEL_CHUNKS_BEHIND - rockLookBehind);
+		int last = Math.min(numChunks - 1, center + Constants.LEVEL_CHUNKS_AHEAD);
+		// generated chunks can't be generated again, the window of endless levels only moves ahead
+		if (generator != null)
+		{
+			first = Math.max(first, firstChunk);
+			last = Math.max(last, lastChunk);
+		}
+		if (first == firstChunk && last == lastChunk) return;
+
+		// evict chunks that left the window
+		for (int i = liveChunks.size - 1; i >= 0; i--)
+		{
+			Chunk chunk = liveChunks.get(i);
+			if (chunk.index < first || chunk.index > last)
+			{
+				liveChunks.removeIndex(i);
+				evict(chunk);
+			}
+		}
+		// materialize chunks that entered the window
+		for (int c = first; c <= last; c++)
+		{
+			if (c >= firstChunk && c <= lastChunk) continue;
+			materialize(c);
+		}
+		firstChunk = first;
+		lastChunk = last;
+	}
+
+	/**
+	 * evict all chunks and forget collected items, the next update materializes the window again
+	 * endless levels start generating again from the beginning
+	 */
+	public void reset ()
+	{
+		for (Chunk chunk : liveChunks)
+			evict(chunk);
+		liveChunks.clear();
+		if (generator != null)
+		{
+			generator.begin();
+		}
+		else
+		{
+			collectedGoldCoins.clear();
+			collectedFeathers.clear();
+		}
+		firstChunk = 0;
+		lastChunk = -1;
+	}
+
+	/**
+	 * drop all recycled objects, their box2d bodies belong to a world that no longer exists
+	 */
+	public void clearPools ()
+	{
+		for (Pool<Rock> rockPool : rockPools.values())
+			rockPool.clear();
+	}
+
+	/**
+	 * get a recycled rock of the given length
+	 * @param length
+	 * @return rock
+	 */
+	private Rock obtainRock (int length)
+	{
+		Pool<Rock> rockPool = rockPools.get(length);
+		if (rockPool == null)
+		{
+			rockPool = new Pool<Rock>()
+			{
+				@Override
+				protected Rock newObject ()
+				{
+					return new Rock();
+				}
+			};
+			rockPools.put(length, rockPool);
+		}
+		return rockPool.obtain();
+	}
+
+	/**
+	 * create the objects of a chunk from the level records
+	 * @param index
+	 */
+	private void materialize (int index)
+	{
+		Chunk chunk = chunkPool.obtain();
+		chunk.index = index;
+		if (generator != null)
+		{
+			materializeGenerated(chunk);
+			return;
+		}
+
+		for (int i = rockStart[index]; i < rockStart[index + 1]; i++)
+		{
+			int record = rockOrder[i];
+			Rock rock = obtainRock(levelData.getRockLength(record));
+			level.placeRock(rock, levelData, record);
+			addRock(chunk, rock);
+		}
+		for (int i = goldCoinStart[index]; i < goldCoinStart[index + 1]; i++)
+		{
+			int record = goldCoinOrder[i];
+			if (collectedGoldCoins.get(record)) continue;
+			GoldCoin goldCoin = goldCoinPool.obtain();
+			level.placeGoldCoin(goldCoin, levelData, record);
+			chunk.goldCoins.add(goldCoin);
+			level.addGoldCoin(goldCoin);
+			if (listener != null) listener.itemAdded(goldCoin);
+		}
+		for (int i = featherStart[index]; i < featherStart[index + 1]; i++)
+		{
+			int record = featherOrder[i];
+			if (collectedFeathers.get(record)) continue;
+			Feather feather = featherPool.obtain();
+			level.placeFeather(feather, levelData, record);
+			chunk.feathers.add(feather);
+			level.addFeather(feather);
+			if (listener != null) listener.itemAdded(feather);
+		}
+		liveChunks.add(chunk);
+	}
+
+	/**
+	 * generate the records of the next chunk of an endless level and create its objects
+	 * @param chunk
+	 */
+	private void materializeGenerated (Chunk chunk)
+	{
+		generator.generateChunk((chunk.index + 1) * chunkWidth, chunk.rockRecords, chunk.goldCoinRecords,
+				chunk.featherRecords);
+
+		IntArray records = chunk.rockRecords;
+		for (int i = 0; i < records.size; i += 4)
+		{
+			Rock rock = obtainRock(records.get(i + 2));
+			rock.setPath(records.get(i + 3));
+			level.placeRock(rock, records.get(i), records.get(i + 1), records.get(i + 2));
+			addRock(chunk, rock);
+		}
+		records = chunk.goldCoinRecords;
+		for (int i = 0; i < records.size; i += 2)
+		{
+			GoldCoin goldCoin = goldCoinPool.obtain();
+			level.placeGoldCoin(goldCoin, records.get(i), records.get(i + 1));
+			chunk.goldCoins.add(goldCoin);
+			level.addGoldCoin(goldCoin);
+			if (listener != null) listener.itemAdded(goldCoin);
+		}
+		records = chunk.featherRecords;
+		for (int i = 0; i < records.size; i += 2)
+		{
+			Feather feather = featherPool.obtain();
+			level.placeFeather(feather, records.get(i), records.get(i + 1));
+			chunk.feathers.add(feather);
+			level.addFeather(feather);
+			if (listener != null) listener.itemAdded(feather);
+		}
+		liveChunks.add(chunk);
+	}
+
+	/**
+	 * add a placed rock to a chunk and the level
+	 * @param chunk
+	 * @param rock
+	 */
+	private void addRock (Chunk chunk, Rock rock)
+	{
+		chunk.rocks.add(rock);
+		level.addRock(rock);
+		if (listener != null) listener.rockAdded(rock);
+	}
+
+	/**
+	 * remove the objects of a chunk from the level and recycle them
+	 * @param chunk
+	 */
+	private void evict (Chunk chunk)
+	{
+		for (Rock rock : chunk.rocks)
+		{
+			level.removeRock(rock);
+			if (listener != null) listener.rockRemoved(rock);
+			rockPools.get(rock.getLength()).free(rock);
+		}
+		for (int i = 0; i < chunk.goldCoins.size; i++)
+		{
+			GoldCoin goldCoin = chunk.goldCoins.get(i);
+			// collected items already left the level
+			if (goldCoin.collected)
+			{
+				if (generator == null) collectedGoldCoins.set(goldCoin.record);
+			}
+			else
+			{
+				level.removeGoldCoin(goldCoin);
+				if (listener != null) listener.itemRemoved(goldCoin);
+			}
+			goldCoinPool.free(goldCoin);
+		}
+		for (int i = 0; i < chunk.feathers.size; i++)
+		{
+			Feather feather = chunk.feathers.get(i);
+			if (feather.collected)
+			{
+				if (generator == null) collectedFeathers.set(feather.record);
+			}
+			else
+			{
+				level.removeFeather(feather);
+				if (listener != null) listener.itemRemoved(feather);
+			}
+			featherPool.free(feather);
+		}
+		chunk.rockRecords.clear();
+		chunk.rocks.clear();
+		chunk.goldCoins.clear();
+		chunk.goldCoinRecords.clear();
+		chunk.feathers.clear();
+		chunk.featherRecords.clear();
+		chunkPool.free(chunk);
+	}
+}
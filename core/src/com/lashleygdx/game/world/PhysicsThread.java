@@ -0,0 +1,101 @@
+package com.lashleygdx.game.world;
+
+import java.util.concurrent.Semaphore;
+
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Disposable;
+
+/**
+ * steps a box2d world on its own thread, so the step of one tick runs while the frame is drawn
+ * and the game works on the next tick
+ * the game only touches the world between finish() and the next step(), box2d is not thread safe:
+ * the objects copy what they need from their bodies at the start of a tick and the rest of the game
+ * (and the renderer) only ever reads the objects, so they are the snapshot of the last finished step
+ * contact listeners run during the step on this thread, they only queue events for the game to apply after finish()
+ * @author Chris Lashley
+ */
+public class PhysicsThread implements Runnable, Disposable
+{
+	public static final String TAG = PhysicsThread.class.getName();
+
+	// box2d solver iterations
+	public static final int VELOCITY_ITERATIONS = 8;
+	public static final int POSITION_ITERATIONS = 3;
+
+	private final World world;
+	private final Thread thread;
+	// the game hands a step over and waits for it to be done, the semaphores also publish the world between threads
+	private final Semaphore stepRequested = new Semaphore(0);
+	private final Semaphore stepDone = new Semaphore(0);
+	private float stepTime;
+	private boolean running = true;
+	// only used by the game thread
+	private boolean stepping;
+
+	/**
+	 * constructor, starts the thread
+	 * @param world
+	 */
+	public PhysicsThread (World world)
+	{
+		this.world = world;
+		thread = new Thread(this, "physics");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * start stepping the world, the world must not be touched until finish() returns
+	 * @param deltaTime
+	 */
+	public void step (float deltaTime)
+	{
+		finish();
+		stepTime = deltaTime;
+		stepping = true;
+		stepRequested.release();
+	}
+
+	/**
+	 * wait for the step in progress, if there is one
+	 */
+	public void finish ()
+	{
+		if (!stepping) return;
+		stepDone.acquireUninterruptibly();
+		stepping = false;
+	}
+
+	/**
+	 * step the world whenever the game asks for it
+	 */
+	@Override
+	public void run ()
+	{
+		while (true)
+		{
+			stepRequested.acquireUninterruptibly();
+			if (!running) return;
+			world.step(stepTime, VELOCITY_ITERATIONS, POSITION_ITERATIONS);
+			stepDone.release();
+		}
+	}
+
+	/**
+	 * finish the last step and stop the thread, the world itself is disposed by its owner
+	 */
+	@Override
+	public void dispose ()
+	{
+		finish();
+		running = false;
+		stepRequested.release();
+		try
+		{
+			thread.join();
+		} catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,164 @@
+package com.lashleygdx.game.world;
+
+import java.util.Comparator;
+
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Pool;
+
+/**
+ * draw commands collected for a frame and drawn sorted by layer, shader and texture
+ * the sprite batch flushes whenever the shader or texture changes, sorted commands change them as little as the layers allow
+ * commands with the same layer, shader and texture are drawn in the order they were added
+ * the batch color is part of every vertex, so commands setting it don't flush the batch
+ * @author Chris Lashley
+ */
+public class RenderQueue
+{
+	public static final String TAG = RenderQueue.class.getName();
+
+	// layers, drawn back to front
+	public static final int LAYER_BACKGROUND = 0;
+	public static final int LAYER_TILES = 1;
+	public static final int LAYER_GEOMETRY = 2;
+	public static final int LAYER_EFFECTS = 3;
+	public static final int LAYER_OBJECTS = 4;
+	public static final int LAYER_FOREGROUND = 5;
+	public static final int LAYER_GUI = 6;
+
+	/**
+	 * anything that draws itself with a sprite batch
+	 * a command that draws without the batch (a sprite cache) ends the batch first and begins it again after
+	 * @author Chris Lashley
+	 */
+	public interface Renderable
+	{
+		/**
+		 * draw with the batch
+		 * @param batch between begin and end
+		 */
+		public void render (SpriteBatch batch);
+	}
+
+	/**
+	 * one draw command and its sort key
+	 * @author Chris Lashley
+	 */
+	private static class Command
+	{
+		int layer;
+		ShaderProgram shader;
+		Texture texture;
+		Renderable renderable;
+	}
+
+	/**
+	 * orders commands by layer, then shader, then texture
+	 * @author Chris Lashley
+	 */
+	private static class CommandComparator implements Comparator<Command>
+	{
+		/**
+		 * compare the sort keys of two commands
+		 * @param a
+		 * @param b
+		 * @return negative if a is drawn first
+		 */
+		@Override
+		public int compare (Command a, Command b)
+		{
+			if (a.layer != b.layer) return a.layer < b.layer ? -1 : 1;
+			int shaderA = a.shader == null ? 0 : System.identityHashCode(a.shader);
+			int shaderB = b.shader == null ? 0 : System.identityHashCode(b.shader);
+			if (shaderA != shaderB) return shaderA < shaderB ? -1 : 1;
+			int textureA = a.texture == null ? 0 : a.texture.getTextureObjectHandle();
+			int textureB = b.texture == null ? 0 : b.texture.getTextureObjectHandle();
+			if (textureA != textureB) return textureA < textureB ? -1 : 1;
+			return 0;
+		}
+	}
+
+	private final Pool<Command> commandPool = new Pool<Command>()
+	{
+		@Override
+		protected Command newObject ()
+		{
+			return new Command();
+		}
+	};
+	private final Array<Command> commands = new Array<Command>();
+	private final CommandComparator comparator = new CommandComparator();
+	// shader for the commands added next, null for the batch's default one
+	private ShaderProgram shader;
+	// batch flushes during the last render
+	private int renderCalls;
+
+	/**
+	 * set the shader the commands added after this are drawn with
+	 * @param shader null for the batch's default shader
+	 */
+	public void setShader (ShaderProgram shader)
+	{
+		this.shader = shader;
+	}
+
+	/**
+	 * add a draw command
+	 * @param layer one of the LAYER constants, higher layers are drawn in front
+	 * @param texture texture the command draws with, null if it doesn't draw with the batch
+	 * @param renderable
+	 */
+	public void add (int layer, Texture texture, Renderable renderable)
+	{
+		Command command = commandPool.obtain();
+		command.layer = layer;
+		command.shader = shader;
+		command.texture = texture;
+		command.renderable = renderable;
+		commands.add(command);
+	}
+
+	/**
+	 * draw the commands in order and empty the queue
+	 * @param batch not begun, with the projection set
+	 */
+	public void render (SpriteBatch batch)
+	{
+		// the sort is stable, so commands with the same key stay in the order they were added
+		commands.sort(comparator);
+		int totalRenderCalls = batch.totalRenderCalls;
+		ShaderProgram batchShader = null;
+		batch.setShader(null);
+		batch.begin();
+		for (int i = 0; i < commands.size; i++)
+		{
+			Command command = commands.get(i);
+			if (command.shader != batchShader)
+			{
+				batchShader = command.shader;
+				batch.setShader(batchShader);
+			}
+			command.renderable.render(batch);
+		}
+		batch.end();
+		batch.setShader(null);
+		renderCalls = batch.totalRenderCalls - totalRenderCalls;
+
+		for (int i = 0; i < commands.size; i++)
+			commands.get(i).renderable = null;
+		commandPool.freeAll(commands);
+		commands.clear();
+		shader = null;
+	}
+
+	/**
+	 * number of times the batch flushed its vertices to the gpu during the last render
+	 * @return render calls
+	 */
+	public int getRenderCalls ()
+	{
+		return renderCalls;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,36 @@
+package com.lashleygdx.game.world;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.math.Matrix4;
+
+/**
+ * shader program for sprite caches
+ * a sprite cache with its own shader sets u_proj, u_trans and u_projTrans, a shader uses either the first two or the last,
+ * so matrices the shader doesn't have are skipped instead of failing the pedantic uniform check
+ * @author Chris Lashley
+ */
+public class SpriteCacheShader extends ShaderProgram
+{
+	/**
+	 * constructor
+	 * @param vertexShader
+	 * @param fragmentShader
+	 */
+	public SpriteCacheShader (FileHandle vertexShader, FileHandle fragmentShader)
+	{
+		super(vertexShader, fragmentShader);
+	}
+
+	/**
+	 * set a matrix uniform if the shader has it
+	 * @param name
+	 * @param matrix
+	 */
+	@Override
+	public void setUniformMatrix (String name, Matrix4 matrix)
+	{
+		int location = fetchUniformLocation(name, false);
+		if (location != -1) setUniformMatrix(location, matrix);
+	}
+}
\ No newline at end of file
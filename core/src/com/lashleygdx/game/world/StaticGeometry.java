@@ -0,0 +1,280 @@
+package com.lashleygdx.game.world;
+
+import java.util.Comparator;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.g2d.SpriteCache;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.Pool;
+import com.lashleygdx.game.util.Constants;
+import com.lashleygdx.game.world.objects.Rock;
+import com.lashleygdx.game.world.objects.RockPath;
+
+/**
+ * rocks and the goal baked into a sprite cache: their quads are built once and stay on the gpu,
+ * all of them are drawn in one pass with a call per part instead of a batch draw per quad every frame
+ * a part holds the rocks of a level chunk that follow the same path in step, or the goal;
+ * rocks are baked at their anchors and the shader moves each part along its path by the level time,
+ * so the quads never change while the level plays and origin shifts only move the offset
+ * the cache is baked again when the rocks of a streamed level change
+ * @author Chris Lashley
+ */
+public class StaticGeometry implements Disposable
+{
+	public static final String TAG = StaticGeometry.class.getName();
+
+	// quads a new cache holds, it grows for bigger levels
+	private static final int CACHE_SIZE = 1000;
+	// the rock edges reach a quarter rock beyond the rock bounds
+	private static final float ROCK_EDGE_WIDTH = 0.25f;
+	// parts are drawn between ticks, so anything this close to the view is drawn too
+	private static final float VIEW_MARGIN = 1.0f;
+
+	/**
+	 * cached quads of one part
+	 * @author Chris Lashley
+	 */
+	private static class Part
+	{
+		int cacheId;
+		// path and phase the rocks of the part follow, no path for the goal
+		RockPath path;
+		float phase;
+		// area of the quads at the anchors
+		final Rectangle bounds = new Rectangle();
+	}
+
+	/**
+	 * orders rocks by level chunk, then path, then phase, so the rocks of a part come one after another
+	 * @author Chris Lashley
+	 */
+	private static class PartComparator implements Comparator<Rock>
+	{
+		// origin of the level being baked
+		int originX;
+
+		/**
+		 * compare the parts of two rocks
+		 * @param a
+		 * @param b
+		 * @return negative if a is baked first
+		 */
+		@Override
+		public int compare (Rock a, Rock b)
+		{
+			int chunkA = getChunk(a, originX);
+			int chunkB = getChunk(b, originX);
+			if (chunkA != chunkB) return chunkA < chunkB ? -1 : 1;
+			int pathA = a.getPath().getId();
+			int pathB = b.getPath().getId();
+			if (pathA != pathB) return pathA < pathB ? -1 : 1;
+			return Float.compare(a.getPhase(), b.getPhase());
+		}
+	}
+
+	private SpriteCache cache;
+	private int cacheSize;
+	// moves the parts and turns them gray for the monochrome preference
+	private final SpriteCacheShader shader;
+	private final Array<Part> parts = new Array<Part>();
+	private final Pool<Part> partPool = new Pool<Part>()
+	{
+		@Override
+		protected Part newObject ()
+		{
+			return new Part();
+		}
+	};
+	// rocks of the level sorted into parts while baking
+	private final Array<Rock> sortedRocks = new Array<Rock>();
+	private final PartComparator comparator = new PartComparator();
+	private final Vector2 offset = new Vector2();
+	private final Rectangle view = new Rectangle();
+	// level and rock set the cache was baked from, and the level origin then
+	private Level level;
+	private int rockVersion;
+	private int bakedOriginX;
+	// parts drawn and culled by the last render
+	private int numDrawn;
+	private int numCulled;
+
+	/**
+	 * constructor
+	 */
+	public StaticGeometry ()
+	{
+		cacheSize = CACHE_SIZE;
+		cache = new SpriteCache(cacheSize, false);
+		shader = new SpriteCacheShader(Gdx.files.internal(Constants.shaderStaticGeometryVertex),
+				Gdx.files.internal(Constants.shaderMonochromeFragment));
+		if (!shader.isCompiled())
+		{
+			String msg = "Could not compile shader program: " + shader.getLog();
+			throw new GdxRuntimeException(msg);
+		}
+		cache.setShader(shader);
+	}
+
+	/**
+	 * draw the rocks and the goal of a level, baking them first if the level or its rocks changed
+	 * call between begin/endInterpolation of the level, with no batch drawing
+	 * @param level
+	 * @param camera
+	 * @param monochrome true to draw in gray
+	 */
+	public void render (Level level, OrthographicCamera camera, boolean monochrome)
+	{
+		if (level != this.level || level.rockVersion != rockVersion) bake(level);
+
+		float width = camera.viewportWidth * camera.zoom;
+		float height = camera.viewportHeight * camera.zoom;
+		view.set(camera.position.x - width / 2 - VIEW_MARGIN, camera.position.y - height / 2 - VIEW_MARGIN,
+				width + VIEW_MARGIN * 2, height + VIEW_MARGIN * 2);
+		double time = level.getRenderTime();
+		float shiftX = bakedOriginX - level.getOriginX();
+		cache.setProjectionMatrix(camera.combined);
+		numDrawn = 0;
+		cache.begin();
+		shader.setUniformf("u_amount", monochrome ? 1.0f : 0.0f);
+		for (int i = 0; i < parts.size; i++)
+		{
+			Part part = parts.get(i);
+			if (part.path == null)
+				offset.set(0, 0);
+			else
+				part.path.getOffset((float)((part.phase + time) % part.path.getDuration()), offset);
+			offset.x += shiftX;
+			if (part.bounds.x + offset.x > view.x + view.width || part.bounds.x + part.bounds.width + offset.x < view.x
+					|| part.bounds.y + offset.y > view.y + view.height || part.bounds.y + part.bounds.height + offset.y < view.y)
+				continue;
+			shader.setUniformf("u_offset", offset);
+			cache.draw(part.cacheId);
+			numDrawn++;
+		}
+		cache.end();
+		numCulled = parts.size - numDrawn;
+	}
+
+	/**
+	 * bake the rocks and the goal of a level into the cache
+	 * @param level
+	 */
+	private void bake (Level level)
+	{
+		this.level = level;
+		rockVersion = level.rockVersion;
+		bakedOriginX = level.getOriginX();
+		partPool.freeAll(parts);
+		parts.clear();
+
+		int numQuads = 1;
+		for (Rock rock : level.rocks)
+			numQuads += rock.getLength() + 2;
+		if (numQuads > cacheSize)
+		{
+			cache.dispose();
+			cacheSize = Math.max(numQuads, cacheSize * 2);
+			cache = new SpriteCache(cacheSize, false);
+			cache.setShader(shader);
+		}
+		cache.clear();
+
+		if (level.goal != null)
+		{
+			cache.beginCache();
+			level.goal.cache(cache);
+			Part part = addPart(null, 0, cache.endCache());
+			part.bounds.set(level.goal.position.x - level.goal.origin.x, level.goal.position.y - level.goal.origin.y,
+					level.goal.dimension.x, level.goal.dimension.y);
+		}
+
+		sortedRocks.clear();
+		sortedRocks.addAll(level.rocks);
+		comparator.originX = bakedOriginX;
+		sortedRocks.sort(comparator);
+		for (int start = 0; start < sortedRocks.size;)
+		{
+			Rock first = sortedRocks.get(start);
+			int end = start + 1;
+			while (end < sortedRocks.size && comparator.compare(first, sortedRocks.get(end)) == 0)
+				end++;
+			cache.beginCache();
+			for (int i = start; i < end; i++)
+				sortedRocks.get(i).cache(cache);
+			Part part = addPart(first.getPath(), first.getPhase(), cache.endCache());
+			part.bounds.set(first.getAnchor().x, first.getAnchor().y, 0, 0);
+			for (int i = start; i < end; i++)
+			{
+				Rock rock = sortedRocks.get(i);
+				Vector2 anchor = rock.getAnchor();
+				part.bounds.merge(anchor.x, anchor.y).merge(anchor.x + rock.bounds.width, anchor.y + rock.bounds.height);
+			}
+			part.bounds.x -= ROCK_EDGE_WIDTH;
+			part.bounds.width += ROCK_EDGE_WIDTH * 2;
+			start = end;
+		}
+		sortedRocks.clear();
+	}
+
+	/**
+	 * add a part for a baked cache
+	 * @param path path the part follows, null if it stands still
+	 * @param phase
+	 * @param cacheId
+	 * @return part, its bounds still have to be set
+	 */
+	private Part addPart (RockPath path, float phase, int cacheId)
+	{
+		Part part = partPool.obtain();
+		part.cacheId = cacheId;
+		part.path = path;
+		part.phase = phase;
+		parts.add(part);
+		return part;
+	}
+
+	/**
+	 * level chunk a rock was placed in
+	 * @param rock
+	 * @param originX level origin
+	 * @return chunk index
+	 */
+	private static int getChunk (Rock rock, int originX)
+	{
+		return MathUtils.floor((rock.getAnchor().x + originX) / Constants.LEVEL_CHUNK_WIDTH);
+	}
+
+	/**
+	 * number of parts the last render drew, one draw call each
+	 * @return drawn parts
+	 */
+	public int getNumDrawn ()
+	{
+		return numDrawn;
+	}
+
+	/**
+	 * number of parts the last render left out because they were outside the view
+	 * @return culled parts
+	 */
+	public int getNumCulled ()
+	{
+		return numCulled;
+	}
+
+	/**
+	 * free the cache and its shader
+	 */
+	@Override
+	public void dispose ()
+	{
+		cache.dispose();
+		shader.dispose();
+	}
+}
\ No newline at end of file
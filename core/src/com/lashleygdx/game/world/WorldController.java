@@ -1,5 +1,7 @@
 package com.lashleygdx.game.world;
 
+import java.util.Comparator;
+
 import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.Application.ApplicationType;
 import com.badlogic.gdx.Gdx;
@@ -7,6 +9,8 @@ import com.badlogic.gdx.Input.Keys;
 import com.badlogic.gdx.InputAdapter;
 import com.lashleygdx.game.util.CameraHelper;
 import com.lashleygdx.game.util.Constants;
+import com.lashleygdx.game.util.GamePreferences;
+import com.lashleygdx.game.world.objects.AbstractGameObject;
 import com.lashleygdx.game.world.objects.BunnyHead;
 import com.lashleygdx.game.world.objects.BunnyHead.JUMP_STATE;
 import com.lashleygdx.game.world.objects.Feather;
@@ -20,21 +24,61 @@ import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.Body;
 import com.badlogic.gdx.physics.box2d.BodyDef;
 import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
+import com.badlogic.gdx.physics.box2d.Contact;
+import com.badlogic.gdx.physics.box2d.ContactImpulse;
+import com.badlogic.gdx.physics.box2d.ContactListener;
+import com.badlogic.gdx.physics.box2d.Fixture;
 import com.badlogic.gdx.physics.box2d.FixtureDef;
+import com.badlogic.gdx.physics.box2d.Manifold;
 import com.badlogic.gdx.physics.box2d.PolygonShape;
 import com.badlogic.gdx.physics.box2d.World;
 import com.lashleygdx.game.world.objects.Carrot;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
 import com.badlogic.gdx.utils.Disposable;
 
 /**
  * World Controller controls all the objects/assets in the game
  * @author Chris Lashley
  */
-public class WorldController extends InputAdapter implements Disposable
+public class WorldController extends InputAdapter implements Disposable, LevelStreamer.Listener, ContactListener
 {
 	private static final String TAG = WorldController.class.getName();
+	// the bunny lands on a rock if its feet are this close to the rock top, otherwise it hit a side
+	private static final float ROCK_LANDING_TOLERANCE = 0.25f;
+	// anything below this fell into the water
+	private static final float WATER_LEVEL = -5;
+	// rocks by x, then y
+	private static final Comparator<Rock> ROCK_ORDER = new Comparator<Rock>()
+	{
+		@Override
+		public int compare (Rock rock1, Rock rock2)
+		{
+			if (rock1.position.x != rock2.position.x) return Float.compare(rock1.position.x, rock2.position.x);
+			return Float.compare(rock1.position.y, rock2.position.y);
+		}
+	};
+	// box2d collision categories, rock fixtures keep the default category
+	private static final short CATEGORY_ROCK = 0x0001;
+	private static final short CATEGORY_CARROT = 0x0002;
+	private static final short CATEGORY_BUNNY = 0x0004;
+	private static final short CATEGORY_ITEM = 0x0008;
+	// box2d bunny: lower corners cut off so it slides over the seams between rocks, and the feet sensor below it
+	private static final float BUNNY_BEVEL = 0.05f;
+	private static final float BUNNY_FEET_HEIGHT = 0.1f;
+	private static final String BUNNY_FEET = "feet";
+	// the bunny stands on a rock once it moves up no faster than this relative to the rock, the step leaves some jitter
+	private static final float BUNNY_LANDING_SPEED = 0.01f;
+	// box2d shapes can't be endless, the goal sensor reaches this high above the goal
+	private static final float GOAL_SENSOR_HEIGHT = 100;
+	// kinds of queued contacts of the box2d bunny
+	private static final int CONTACT_FEET_BEGIN = 0;
+	private static final int CONTACT_FEET_END = 1;
+	private static final int CONTACT_ITEM = 2;
 	public CameraHelper cameraHelper;
 	public Level level;
+	// generator of an endless level, null for loaded levels
+	private LevelGenerator generator;
 	public int lives;
 	public int score;
 	private Game game;
@@ -45,21 +89,99 @@ public class WorldController extends InputAdapter implements Disposable
 	// rectangles for collision detection
 	private Rectangle r1 = new Rectangle();
 	private Rectangle r2 = new Rectangle();
+	// objects in the collision grid cells around the player
+	private Array<Rock> nearbyRocks = new Array<Rock>();
+	private Array<GoldCoin> nearbyGoldCoins = new Array<GoldCoin>();
+	private Array<Feather> nearbyFeathers = new Array<Feather>();
 
 	private boolean goalReached;
 	public World b2world;
+	// steps the world while the game draws, null if the world is stepped inline
+	private PhysicsThread physicsThread;
+
+	// fixed simulation tick and the frame time not simulated yet
+	private float tickTime = 1.0f / Constants.SIMULATION_TICK_RATE;
+	private float accumulator;
+	// bodies moved by an origin shift
+	private Array<Body> bodies = new Array<Body>();
+	// rock body position before the box2d step
+	private Vector2 tmpPosition = new Vector2();
+
+	// carrots of the carrot rain still to fall, and where they fall
+	private int carrotsToSpawn;
+	private Vector2 carrotSpawnPosition = new Vector2();
+	private BodyDef carrotBodyDef = new BodyDef();
+	private FixtureDef carrotFixtureDef = new FixtureDef();
+	private PolygonShape carrotShape;
+
+	// the bunny is a box2d body and items are sensors, chosen once per controller
+	private boolean box2dBunny;
+	// rocks under the bunny's feet, once per contact, and the one it stands on: the last it stepped on that it still
+	// touches; items it touched during the last step
+	private Array<Body> feetContacts = new Array<Body>();
+	private Body ground;
+	private Array<AbstractGameObject> touchedItems = new Array<AbstractGameObject>();
+	// contacts of the box2d bunny as the contact listener reported them: the kind of each and the body or item it is about
+	// the listener runs on whichever thread has the world, the physics thread during a step or the game thread when
+	// bodies go to sleep or are destroyed, so it only queues them and the game thread applies them to the state above
+	private final IntArray contactTypes = new IntArray();
+	private final Array<Object> contactSubjects = new Array<Object>();
+
+	/**
+	 * get the loaded level (or start an endless one) and build its physics world
+	 */
+	private void loadLevel()
+	{
+		if (GamePreferences.instance.endlessMode)
+		{
+			generator = new LevelGenerator(MathUtils.random.nextLong());
+			generator.height = Constants.ENDLESS_LEVEL_HEIGHT;
+			level = new Level(generator);
+		}
+		else
+		{
+			// the level was prefetched by the menu screen and is reset in place by initLevel
+			level = Assets.instance.getLevel(Constants.LEVEL_01);
+		}
+		initPhysics();
+		level.setStreamListener(this);
+	}
 
 	/**
-	 * start a new level
+	 * start a new level by restoring the loaded level in place
 	 */
 	private void initLevel()
 	{
 		score = 0;
 		scoreVisual = score;
 		goalReached = false;
-		level = new Level (Constants.LEVEL_01);
+		// carrots are the only bodies the level does not restore itself
+		for (Carrot carrot : level.carrots)
+			b2world.destroyBody(carrot.body);
+		carrotsToSpawn = 0;
+		// the level moves its origin back to the start, the camera has to follow
+		int originX = level.getOriginX();
+		level.reset();
+		// the bodies of the bunny and the items move back with them
+		if (box2dBunny)
+		{
+			level.bunnyHead.body.setTransform(level.bunnyHead.position, 0);
+			level.bunnyHead.body.setLinearVelocity(0, 0);
+		}
+		for (GoldCoin goldCoin : level.goldCoins)
+			placeSensorBody(goldCoin);
+		for (Feather feather : level.feathers)
+			placeSensorBody(feather);
+		if (level.goal != null) placeSensorBody(level.goal);
 		cameraHelper.setTarget(level.bunnyHead);
-		initPhysics();
+		// streamed levels only have objects around the camera, so start it at the player
+		if (level.isStreamed())
+		{
+			cameraHelper.setPosition(level.bunnyHead.position.x, level.bunnyHead.position.y);
+			cameraHelper.savePosition();
+		}
+		else
+			cameraHelper.translateX(originX);
 	}
 
 	/**
@@ -76,33 +198,90 @@ public class WorldController extends InputAdapter implements Disposable
 	 */
 	private void init ()
 	{
+		// a reset can come in while the last tick's step still runs
+		finishPhysics();
 		Gdx.input.setInputProcessor(this);
 		cameraHelper = new CameraHelper();
 		lives = Constants.LIVES_START;
 		livesVisual = lives;
 		timeLeftGameOverDelay = 0;
+		// restarts keep the level and its box2d world, initLevel puts the bodies back in place
+		if (level == null)
+			loadLevel();
+		else if (generator != null)
+			generator.seed = MathUtils.random.nextLong();	// endless levels start over as a new level
 		initLevel();
 	}
 
 	/**
-	 * update the game variables
+	 * set the simulation tick rate
+	 * @param ticksPerSecond
+	 */
+	public void setTickRate (int ticksPerSecond)
+	{
+		tickTime = 1.0f / ticksPerSecond;
+	}
+
+	/**
+	 * how far the frame is between the last two simulation ticks, for drawing
+	 * @return 0 for the last tick, 1 for the current one
+	 */
+	public float getInterpolationAlpha ()
+	{
+		return accumulator / tickTime;
+	}
+
+	/**
+	 * advance the game by the frame time in fixed simulation ticks, the time left over
+	 * carries into the next frame and is drawn by interpolating between the last two ticks
 	 * @param deltaTime
 	 */
 	public void update (float deltaTime)
 	{
+		// long frames (hitches, debugger) drop time instead of piling up ticks that make the next frame longer
+		accumulator += Math.min(deltaTime, Constants.SIMULATION_MAX_TICKS_PER_FRAME * tickTime);
+		while (accumulator >= tickTime)
+		{
+			accumulator -= tickTime;
+			tick(tickTime);
+		}
+	}
+
+	/**
+	 * update the game variables
+	 * @param deltaTime
+	 */
+	private void tick (float deltaTime)
+	{
+		// the world can be touched again once the step of the last tick is done
+		finishPhysics();
+		settleCarrots(deltaTime);
+		if (box2dBunny) handleContacts();
+		level.savePositions();
+		cameraHelper.savePosition();
 		handleDebugInput(deltaTime);
 		if (isGameOver() || goalReached)
 		{
 			timeLeftGameOverDelay -= deltaTime;
-			if (timeLeftGameOverDelay < 0) backToMenu();
+			if (timeLeftGameOverDelay < 0)
+			{
+				// the menu screen disposes this controller and its box2d world
+				backToMenu();
+				return;
+			}
 		} else
 		{
 			handleInputGame(deltaTime);
 		}
+		// the region covers the widest screen at the current zoom plus a margin
+		level.updateActiveRegion(cameraHelper.getPosition().x,
+				Constants.VIEWPORT_WIDTH * cameraHelper.getZoom() + Constants.ACTIVE_REGION_MARGIN);
 		level.update(deltaTime);
-		testCollisions();
-		b2world.step(deltaTime,  8,  3);
+		// a box2d bunny collides during the step, its contacts are handled at the start of the next tick
+		if (!box2dBunny) testCollisions();
 		cameraHelper.update(deltaTime);
+		updateOrigin();
+		level.updateStreaming(cameraHelper.getPosition());
 		if (!isGameOver() && isPlayerInWater())
 		{
 			AudioManager.instance.play(Assets.instance.sounds.liveLost);
@@ -125,6 +304,45 @@ public class WorldController extends InputAdapter implements Disposable
 		{
 			scoreVisual = Math.min(score,  scoreVisual + 250 * deltaTime);
 		}
+		// the step comes last, with a physics thread it runs while the frame is drawn
+		spawnCarrots();
+		pushRockMoves(deltaTime);
+		if (box2dBunny) pushBunnyMove();
+		if (physicsThread != null)
+			physicsThread.step(deltaTime);
+		else
+			b2world.step(deltaTime, PhysicsThread.VELOCITY_ITERATIONS, PhysicsThread.POSITION_ITERATIONS);
+	}
+
+	/**
+	 * wait for the physics thread to finish its step, the box2d world must not be touched before
+	 */
+	public void finishPhysics ()
+	{
+		if (physicsThread != null) physicsThread.finish();
+	}
+
+	/**
+	 * move the world origin under the camera once the camera is far from it,
+	 * shifts are whole chunks so streamed chunks and level columns stay aligned with world x
+	 */
+	private void updateOrigin ()
+	{
+		float cameraX = cameraHelper.getPosition().x;
+		if (Math.abs(cameraX) < Constants.ORIGIN_SHIFT_DISTANCE) return;
+		int shiftX = MathUtils.floor(cameraX / Constants.LEVEL_CHUNK_WIDTH) * Constants.LEVEL_CHUNK_WIDTH;
+		level.shiftOrigin(shiftX);
+		cameraHelper.translateX(-shiftX);
+		carrotSpawnPosition.x -= shiftX;
+		// all bodies, including those of recycled rocks that wait for their next use
+		b2world.getBodies(bodies);
+		for (int i = 0; i < bodies.size; i++)
+		{
+			Body body = bodies.get(i);
+			body.setTransform(body.getPosition().x - shiftX, body.getPosition().y, body.getAngle());
+		}
+		bodies.clear();
+		Gdx.app.debug(TAG, "World origin moved to level column " + level.getOriginX());
 	}
 
 	/**
@@ -202,7 +420,7 @@ public class WorldController extends InputAdapter implements Disposable
 	{
 		BunnyHead bunnyHead = level.bunnyHead;
 		float heightDifference = Math.abs(bunnyHead.position.y - (rock.position.y + rock.bounds.height));
-		if (heightDifference > 0.25f)
+		if (heightDifference > ROCK_LANDING_TOLERANCE)
 		{
 			boolean hitRightEdge = bunnyHead.position.x > (rock.position.x + rock.bounds.width / 2.0f);
 			if (hitRightEdge)
@@ -237,7 +455,8 @@ public class WorldController extends InputAdapter implements Disposable
 	 */
 	private void onCollisionBunnyWithGoldCoin (GoldCoin goldCoin)
 	{
-		goldCoin.collected = true;
+		level.collectGoldCoin(goldCoin);
+		if (goldCoin.body != null) goldCoin.body.setActive(false);
 		AudioManager.instance.play(Assets.instance.sounds.pickupCoin);
 		score += goldCoin.getScore();
 		Gdx.app.log(TAG,  "Gold coin collected");
@@ -249,7 +468,8 @@ public class WorldController extends InputAdapter implements Disposable
 	 */
 	private void onCollisionBunnyWithFeather (Feather feather)
 	{
-		feather.collected = true;
+		level.collectFeather(feather);
+		if (feather.body != null) feather.body.setActive(false);
 		AudioManager.instance.play(Assets.instance.sounds.pickupFeather);
 		score += feather.getScore();
 		level.bunnyHead.setFeatherPowerup(true);
@@ -258,48 +478,148 @@ public class WorldController extends InputAdapter implements Disposable
 
 	/**
 	 * check for player collision with game objects and world
+	 * the player box is swept from where it started the tick, so long ticks and fast moves
+	 * can't carry it through rocks or past items
+	 * only the objects in the collision grid cells along the way are tested
 	 */
 	private void testCollisions()
 	{
-		r1.set(level.bunnyHead.position.x, level.bunnyHead.position.y, level.bunnyHead.bounds.width,
-				level.bunnyHead.bounds.height);
+		BunnyHead bunnyHead = level.bunnyHead;
+		r1.set(bunnyHead.lastPosition.x, bunnyHead.lastPosition.y, bunnyHead.bounds.width, bunnyHead.bounds.height);
+		float dx = bunnyHead.position.x - r1.x;
+		float dy = bunnyHead.position.y - r1.y;
 
 		// test collision: bunny head <--> rocks
-		for (Rock rock : level.rocks)
+		// stop at the first rock in the way, then slide along it
+		level.rockGrid.query(Math.min(r1.x, r1.x + dx), r1.width + Math.abs(dx), nearbyRocks);
+		Rock firstRock = null;
+		float firstImpact = 1;
+		for (Rock rock : nearbyRocks)
+		{
+			// sweep relative to the rock, it moved with its body since the last frame
+			float rockDx = rock.lastMove.x;
+			float rockDy = rock.lastMove.y;
+			r2.set(rock.position.x - rockDx, rock.position.y - rockDy, rock.bounds.width, rock.bounds.height);
+			float impact = timeOfImpact(r1, dx - rockDx, dy - rockDy, r2);
+			// a bunny standing on the rock hits it right away, whatever the rock's last move
+			if (impact < 0 && dy < rockDy && r1.y >= r2.y + r2.height - ROCK_LANDING_TOLERANCE) impact = 0;
+			// rocks the bunny already overlaps are handled below
+			if (impact < 0 || impact > firstImpact) continue;
+			firstRock = rock;
+			firstImpact = impact;
+		}
+		if (firstRock != null)
+		{
+			// the rock has moved on since the impact, the collision handler puts the bunny on its current top
+			float impactX = r1.x + dx * firstImpact;
+			float rockX = firstRock.position.x - firstRock.lastMove.x * (1 - firstImpact);
+			if (impactX < rockX + firstRock.bounds.width && impactX + r1.width > rockX)
+			{
+				bunnyHead.position.y = r1.y + dy * firstImpact;	// hit the top or bottom
+				// moving platforms carry the bunny for the rest of the move
+				if (dy <= firstRock.lastMove.y) bunnyHead.position.x += firstRock.lastMove.x * (1 - firstImpact);
+			}
+			else
+				bunnyHead.position.x = impactX;	// hit a side
+			onCollisionBunnyHeadWithRock(firstRock);
+		}
+		r1.set(bunnyHead.position.x, bunnyHead.position.y, bunnyHead.bounds.width, bunnyHead.bounds.height);
+		for (Rock rock : nearbyRocks)
 		{
 			r2.set(rock.position.x, rock.position.y, rock.bounds.width, rock.bounds.height);
 			if (!r1.overlaps(r2)) continue;
 			onCollisionBunnyHeadWithRock(rock);
 			// IMPORTANT: must do all collisions for valid edge testing on rocks
 		}
+
+		// items are swept along the move that is left after the rocks
+		r1.set(bunnyHead.lastPosition.x, bunnyHead.lastPosition.y, bunnyHead.bounds.width, bunnyHead.bounds.height);
+		dx = bunnyHead.position.x - r1.x;
+		dy = bunnyHead.position.y - r1.y;
+		float sweptX = Math.min(r1.x, r1.x + dx);
+		float sweptWidth = r1.width + Math.abs(dx);
+
 		// test collision: bunny head <--> gold coins
-		for (GoldCoin goldCoin : level.goldCoins)
+		level.goldCoinGrid.query(sweptX, sweptWidth, nearbyGoldCoins);
+		for (GoldCoin goldCoin : nearbyGoldCoins)
 		{
-			if (goldCoin.collected) continue;
 			r2.set(goldCoin.position.x, goldCoin.position.y, goldCoin.bounds.width, goldCoin.bounds.height);
-			if (!r1.overlaps(r2)) continue;
+			if (timeOfImpact(r1, dx, dy, r2) > 1) continue;
 			onCollisionBunnyWithGoldCoin(goldCoin);
 			break;
 		}
 		// test collision: bunny head <--> feather
-		for (Feather feather : level.feathers)
+		level.featherGrid.query(sweptX, sweptWidth, nearbyFeathers);
+		for (Feather feather : nearbyFeathers)
 		{
-			if (feather.collected) continue;
 			r2.set(feather.position.x, feather.position.y, feather.bounds.width, feather.bounds.height);
-			if (!r1.overlaps(r2)) continue;
+			if (timeOfImpact(r1, dx, dy, r2) > 1) continue;
 			onCollisionBunnyWithFeather(feather);
 			break;
 		}
 		// test collision: bunny head <--> goal
-		if (!goalReached)
+		if (!goalReached && level.goal != null)
 		{
 			r2.set(level.goal.bounds);
 			r2.x += level.goal.position.x;
 			r2.y += level.goal.position.y;
-			if (r1.overlaps(r2)) onCollisionBunnyWithGoal();
+			if (timeOfImpact(r1, dx, dy, r2) <= 1) onCollisionBunnyWithGoal();
 		}
 	}
 
+	/**
+	 * time of impact of a box moving by dx, dy with a resting box (swept AABB)
+	 * @param moving box at the start of the move
+	 * @param dx
+	 * @param dy
+	 * @param other
+	 * @return fraction of the move at which the boxes start to touch, negative if they overlap at the start,
+	 * Float.MAX_VALUE if they don't touch during the move
+	 */
+	private static float timeOfImpact (Rectangle moving, float dx, float dy, Rectangle other)
+	{
+		// times at which the boxes start and stop overlapping on each axis
+		float entryX, exitX, entryY, exitY;
+		if (dx > 0)
+		{
+			entryX = (other.x - (moving.x + moving.width)) / dx;
+			exitX = (other.x + other.width - moving.x) / dx;
+		}
+		else if (dx < 0)
+		{
+			entryX = (other.x + other.width - moving.x) / dx;
+			exitX = (other.x - (moving.x + moving.width)) / dx;
+		}
+		else if (moving.x < other.x + other.width && moving.x + moving.width > other.x)
+		{
+			entryX = -Float.MAX_VALUE;
+			exitX = Float.MAX_VALUE;
+		}
+		else return Float.MAX_VALUE;
+
+		if (dy > 0)
+		{
+			entryY = (other.y - (moving.y + moving.height)) / dy;
+			exitY = (other.y + other.height - moving.y) / dy;
+		}
+		else if (dy < 0)
+		{
+			entryY = (other.y + other.height - moving.y) / dy;
+			exitY = (other.y - (moving.y + moving.height)) / dy;
+		}
+		else if (moving.y < other.y + other.height && moving.y + moving.height > other.y)
+		{
+			entryY = -Float.MAX_VALUE;
+			exitY = Float.MAX_VALUE;
+		}
+		else return Float.MAX_VALUE;
+
+		float entry = Math.max(entryX, entryY);
+		float exit = Math.min(exitX, exitY);
+		if (entry > exit || exit < 0 || entry > 1) return Float.MAX_VALUE;
+		return entry;
+	}
+
 	/**
 	 * player movement / controls
 	 * @param deltaTime
@@ -348,7 +668,7 @@ public class WorldController extends InputAdapter implements Disposable
 	 */
 	public boolean isPlayerInWater()
 	{
-		return level.bunnyHead.position.y < -5;
+		return level.bunnyHead.position.y < WATER_LEVEL;
 	}
 
 	/**
@@ -356,51 +676,452 @@ public class WorldController extends InputAdapter implements Disposable
 	 */
 	private void backToMenu()
 	{
+		// no more ticks for this frame
+		accumulator = 0;
 		game.setScreen(new MenuScreen(game));
 	}
 
 	/**
-	 * initialize rock physics using box2d
+	 * initialize rock physics using box2d, once per controller: restarts reuse the world and its bodies
 	 */
 	private void initPhysics ()
 	{
-		if (b2world != null) b2world.dispose();
+		// loaded levels are shared between games, carrots and recycled rocks of an earlier game
+		// had their bodies in that game's world
+		level.clearCarrots();
+		level.clearRecycledObjects();
+		level.bunnyHead.body = null;
 
 		b2world = new World(new Vector2(0, -9.81f), true);
-		// rocks
-		Vector2 origin = new Vector2();
+		box2dBunny = GamePreferences.instance.box2dBunny;
+		// the contact listener costs a call into java per contact, so the world only gets one when it is needed
+		if (box2dBunny)
+		{
+			createBunnyBody();
+			b2world.setContactListener(this);
+		}
+		// all carrots share one body definition and shape, box2d copies them into each body
+		if (carrotShape == null) carrotShape = new PolygonShape();
+		carrotFixtureDef.shape = carrotShape;
+		carrotFixtureDef.density = 50;
+		carrotFixtureDef.restitution = 0.5f;
+		carrotFixtureDef.friction = 0.5f;
+		// carrots only land on rocks, piles of thousands of carrots would never come to rest
+		carrotFixtureDef.filter.categoryBits = CATEGORY_CARROT;
+		carrotFixtureDef.filter.maskBits = CATEGORY_ROCK;
+		carrotBodyDef.type = BodyType.DynamicBody;
+		// rocks, streamed rocks come and go with their chunk and keep a body each
+		if (level.isStreamed())
+		{
+			for (Rock rock : level.rocks)
+				createRockBody(rock);
+		}
+		else
+		{
+			createRockBodies();
+		}
+		if (GamePreferences.instance.physicsThread) physicsThread = new PhysicsThread(b2world);
+	}
+
+	/**
+	 * let the rock bodies make the move their rocks just made, in one pass before the box2d step
+	 * only carrots and a box2d bunny collide with rock bodies, so the bodies are left alone while there are none
+	 * @param deltaTime
+	 */
+	private void pushRockMoves (float deltaTime)
+	{
+		if (level.carrots.size == 0 && !box2dBunny) return;
+		for (Rock rock : level.getActiveRocks())
+		{
+			// compound bodies are moved once, by the first rock of their group
+			if (rock.group != null && rock.group.first() != rock) continue;
+			// the step takes the body from the rock's last position to its current one
+			tmpPosition.set(rock.position).sub(rock.lastMove);
+			rock.body.setTransform(tmpPosition, 0);
+			rock.body.setLinearVelocity(rock.lastMove.x / deltaTime, rock.lastMove.y / deltaTime);
+		}
+	}
+
+	/**
+	 * build the rock bodies of a loaded level: rocks of a level chunk that follow the same path in step
+	 * share one compound kinematic body with a box fixture each, so the world has a body per group instead of per rock
+	 */
+	private void createRockBodies ()
+	{
+		// group the rocks, a level has few chunks and phases so a linear search for the group is fine
+		Array<Array<Rock>> groups = new Array<Array<Rock>>();
+		IntArray groupChunks = new IntArray();
 		for (Rock rock : level.rocks)
 		{
-			BodyDef bodyDef = new BodyDef();
-			bodyDef.type = BodyType.KinematicBody;
-			bodyDef.position.set(rock.position);
+			int chunk = MathUtils.floor((rock.position.x + level.getOriginX()) / Constants.LEVEL_CHUNK_WIDTH);
+			Array<Rock> group = null;
+			for (int i = 0; i < groups.size && group == null; i++)
+			{
+				Rock first = groups.get(i).first();
+				if (groupChunks.get(i) == chunk && first.getPath() == rock.getPath()
+						&& first.getPhase() == rock.getPhase()) group = groups.get(i);
+			}
+			if (group == null)
+			{
+				group = new Array<Rock>();
+				groups.add(group);
+				groupChunks.add(chunk);
+			}
+			group.add(rock);
+		}
+
+		BodyDef bodyDef = new BodyDef();
+		bodyDef.type = BodyType.KinematicBody;
+		// the level wakes rocks near the camera
+		bodyDef.active = false;
+		PolygonShape polygonShape = new PolygonShape();
+		FixtureDef fixtureDef = new FixtureDef();
+		fixtureDef.shape = polygonShape;
+		int numFixtures = 0;
+		for (Array<Rock> group : groups)
+		{
+			// stacked rocks of the same width overlap, in order of x and y each stack becomes one box
+			group.sort(ROCK_ORDER);
+			// the body sits where the first rock is, the others keep their distance to it
+			Rock first = group.first();
+			bodyDef.position.set(first.position);
 			Body body = b2world.createBody(bodyDef);
-			rock.body = body;
+			Rock stack = null;
+			float stackTop = 0;
+			for (Rock rock : group)
+			{
+				if (stack != null && (rock.position.x != stack.position.x || rock.bounds.width != stack.bounds.width
+						|| rock.position.y > stackTop))
+				{
+					addRockBox(body, first, stack, stackTop, polygonShape, fixtureDef);
+					numFixtures++;
+					stack = null;
+				}
+				if (stack == null)
+				{
+					stack = rock;
+					stackTop = rock.position.y + rock.bounds.height;
+				}
+				else
+					stackTop = Math.max(stackTop, rock.position.y + rock.bounds.height);
+				rock.body = body;
+				rock.group = group.size > 1 ? group : null;
+				rock.setActive(false);
+			}
+			addRockBox(body, first, stack, stackTop, polygonShape, fixtureDef);
+			numFixtures++;
+		}
+		polygonShape.dispose();
+		// one body, fixture and broadphase proxy per rock before, proxies only exist while the bodies are awake
+		Gdx.app.debug(TAG, "Rock physics: rocks<" + level.rocks.size + "> bodies<" + groups.size + "> fixtures<"
+				+ numFixtures + "> proxies when all awake<" + numFixtures + ">, a body each would be <"
+				+ level.rocks.size + "> bodies, fixtures and proxies");
+	}
+
+	/**
+	 * add the box of a stack of rocks to a compound body
+	 * @param body
+	 * @param first rock at the body position
+	 * @param stack lowest rock of the stack
+	 * @param stackTop top of the highest rock of the stack
+	 * @param polygonShape
+	 * @param fixtureDef using polygonShape
+	 */
+	private void addRockBox (Body body, Rock first, Rock stack, float stackTop, PolygonShape polygonShape, FixtureDef fixtureDef)
+	{
+		float halfWidth = stack.bounds.width / 2.0f;
+		float halfHeight = (stackTop - stack.position.y) / 2.0f;
+		tmpPosition.set(stack.position).sub(first.position).add(halfWidth, halfHeight);
+		polygonShape.setAsBox(halfWidth, halfHeight, tmpPosition, 0);
+		body.createFixture(fixtureDef);
+	}
+
+	/**
+	 * create the kinematic box2d body of a rock
+	 * @param rock
+	 */
+	private void createRockBody (Rock rock)
+	{
+		BodyDef bodyDef = new BodyDef();
+		bodyDef.type = BodyType.KinematicBody;
+		bodyDef.position.set(rock.position);
+		// the level wakes rocks near the camera
+		bodyDef.active = false;
+		Body body = b2world.createBody(bodyDef);
+		rock.body = body;
+		rock.group = null;
+		rock.setActive(false);
+		PolygonShape polygonShape = new PolygonShape();
+		Vector2 origin = new Vector2();
+		origin.x = rock.bounds.width / 2.0f;
+		origin.y = rock.bounds.height / 2.0f;
+		polygonShape.setAsBox(rock.bounds.width / 2.0f, rock.bounds.height / 2.0f, origin, 0);
+		FixtureDef fixtureDef = new FixtureDef();
+		fixtureDef.shape = polygonShape;
+		body.createFixture(fixtureDef);
+		polygonShape.dispose();
+	}
+
+	/**
+	 * streamed rock entered the level: recycled rocks move their body, new rocks get one
+	 * @param rock
+	 */
+	@Override
+	public void rockAdded (Rock rock)
+	{
+		if (rock.body == null)
+		{
+			createRockBody(rock);
+			return;
+		}
+		rock.body.setTransform(rock.position, 0);
+		rock.body.setLinearVelocity(0, 0);
+		// the rock wakes once the camera gets near it
+	}
+
+	/**
+	 * streamed rock left the level, its body sleeps until the rock is recycled
+	 * @param rock
+	 */
+	@Override
+	public void rockRemoved (Rock rock)
+	{
+		rock.setActive(false);
+	}
+
+	/**
+	 * streamed item entered the level, it gets a sensor body if the bunny is a box2d body
+	 * @param item
+	 */
+	@Override
+	public void itemAdded (AbstractGameObject item)
+	{
+		placeSensorBody(item);
+	}
+
+	/**
+	 * streamed item left the level, its body sleeps until the item is recycled
+	 * @param item
+	 */
+	@Override
+	public void itemRemoved (AbstractGameObject item)
+	{
+		// items from before the level's last restart can still have a body of an earlier game's world
+		if (item.body != null && item.body.getWorld() == b2world) item.body.setActive(false);
+	}
+
+	/**
+	 * create the box2d bunny: a dynamic body that does not turn and does not fall by itself,
+	 * the bunny works out its velocity and the step only keeps it out of the rocks
+	 */
+	private void createBunnyBody ()
+	{
+		BunnyHead bunnyHead = level.bunnyHead;
+		BodyDef bodyDef = new BodyDef();
+		bodyDef.type = BodyType.DynamicBody;
+		bodyDef.fixedRotation = true;
+		bodyDef.gravityScale = 0;
+		bodyDef.position.set(bunnyHead.position);
+		Body body = b2world.createBody(bodyDef);
+		float width = bunnyHead.bounds.width;
+		float height = bunnyHead.bounds.height;
+		PolygonShape polygonShape = new PolygonShape();
+		polygonShape.set(new float[] { BUNNY_BEVEL, 0, width - BUNNY_BEVEL, 0, width, BUNNY_BEVEL, width, height,
+				0, height, 0, BUNNY_BEVEL });
+		FixtureDef fixtureDef = new FixtureDef();
+		fixtureDef.shape = polygonShape;
+		fixtureDef.density = 1;
+		// no friction, the bunny slides down walls and moving rocks carry it by their velocity
+		fixtureDef.friction = 0;
+		fixtureDef.filter.categoryBits = CATEGORY_BUNNY;
+		fixtureDef.filter.maskBits = CATEGORY_ROCK | CATEGORY_ITEM;
+		body.createFixture(fixtureDef).setUserData(bunnyHead);
+		// the feet stop short of the sides, so walls don't count as ground
+		polygonShape.setAsBox(width / 2 - BUNNY_BEVEL, BUNNY_FEET_HEIGHT / 2, tmpPosition.set(width / 2, 0), 0);
+		fixtureDef.isSensor = true;
+		fixtureDef.filter.maskBits = CATEGORY_ROCK;
+		body.createFixture(fixtureDef).setUserData(BUNNY_FEET);
+		polygonShape.dispose();
+		bunnyHead.body = body;
+	}
+
+	/**
+	 * give a gold coin, feather or the goal a sensor body where it is, or wake the body it has
+	 * objects keep their body across restarts, bodies of an earlier game's world are dropped
+	 * @param item
+	 */
+	private void placeSensorBody (AbstractGameObject item)
+	{
+		if (item.body != null && item.body.getWorld() != b2world) item.body = null;
+		if (!box2dBunny) return;
+		if (item.body == null)
+		{
+			BodyDef bodyDef = new BodyDef();
+			bodyDef.position.set(item.position);
+			item.body = b2world.createBody(bodyDef);
+			float halfWidth = item.bounds.width / 2.0f;
+			float halfHeight = Math.min(item.bounds.height, GOAL_SENSOR_HEIGHT) / 2.0f;
 			PolygonShape polygonShape = new PolygonShape();
-			origin.x = rock.bounds.width / 2.0f;
-			origin.y = rock.bounds.height / 2.0f;
-			polygonShape.setAsBox(rock.bounds.width / 2.0f, rock.bounds.height / 2.0f, origin, 0);
+			polygonShape.setAsBox(halfWidth, halfHeight, tmpPosition.set(item.bounds.x + halfWidth, item.bounds.y + halfHeight), 0);
 			FixtureDef fixtureDef = new FixtureDef();
 			fixtureDef.shape = polygonShape;
-			body.createFixture(fixtureDef);
+			fixtureDef.isSensor = true;
+			fixtureDef.filter.categoryBits = CATEGORY_ITEM;
+			fixtureDef.filter.maskBits = CATEGORY_BUNNY;
+			item.body.createFixture(fixtureDef).setUserData(item);
 			polygonShape.dispose();
 		}
+		item.body.setTransform(item.position, 0);
+		item.body.setActive(true);
 	}
 
 	/**
-	 * make it rain carrots when the goal is reached
-	 * @param pos
-	 * @param numCarrots
-	 * @param radius
+	 * pick up what the box2d bunny touched during the last step and see if it landed,
+	 * the bunny's fall is what is left of its velocity after the step
 	 */
-	private void spawnCarrots (Vector2 pos, int numCarrots, float radius)
+	private void handleContacts ()
 	{
+		applyContacts();
+		BunnyHead bunnyHead = level.bunnyHead;
+		bunnyHead.velocity.y = bunnyHead.body.getLinearVelocity().y;
+		if (ground != null) bunnyHead.velocity.y -= ground.getLinearVelocity().y;
+		if (ground != null && bunnyHead.velocity.y < BUNNY_LANDING_SPEED
+				&& (bunnyHead.jumpState == JUMP_STATE.FALLING || bunnyHead.jumpState == JUMP_STATE.JUMP_FALLING))
+		{
+			bunnyHead.velocity.y = 0;
+			bunnyHead.jumpState = JUMP_STATE.GROUNDED;
+		}
+		for (int i = 0; i < touchedItems.size; i++)
+		{
+			AbstractGameObject item = touchedItems.get(i);
+			if (item instanceof GoldCoin)
+			{
+				if (!((GoldCoin)item).collected) onCollisionBunnyWithGoldCoin((GoldCoin)item);
+			}
+			else if (item instanceof Feather)
+			{
+				if (!((Feather)item).collected) onCollisionBunnyWithFeather((Feather)item);
+			}
+			else if (item == level.goal)
+				onCollisionBunnyWithGoal();
+		}
+		touchedItems.clear();
+	}
+
+	/**
+	 * hand the bunny's velocity to its body for the step, a bunny standing on a moving rock moves with it
+	 */
+	private void pushBunnyMove ()
+	{
+		// rocks put to sleep or evicted during the tick may have been the ground
+		applyContacts();
+		tmpPosition.set(level.bunnyHead.velocity);
+		if (ground != null) tmpPosition.add(ground.getLinearVelocity());
+		level.bunnyHead.body.setLinearVelocity(tmpPosition);
+	}
+
+	/**
+	 * apply the queued contacts of the box2d bunny, on the game thread with the world not being stepped
+	 */
+	private void applyContacts ()
+	{
+		for (int i = 0; i < contactTypes.size; i++)
+		{
+			Object subject = contactSubjects.get(i);
+			switch (contactTypes.get(i))
+			{
+			case CONTACT_FEET_BEGIN:
+				feetContacts.add((Body)subject);
+				ground = feetContacts.peek();
+				break;
+			case CONTACT_FEET_END:
+				feetContacts.removeValue((Body)subject, true);
+				ground = feetContacts.size > 0 ? feetContacts.peek() : null;
+				break;
+			case CONTACT_ITEM:
+				touchedItems.add((AbstractGameObject)subject);
+				break;
+			}
+		}
+		contactTypes.clear();
+		contactSubjects.clear();
+	}
+
+	/**
+	 * queue a contact of the box2d bunny for the game thread
+	 * @param type one of the CONTACT constants
+	 * @param subject body or item the contact is about
+	 */
+	private void queueContact (int type, Object subject)
+	{
+		contactTypes.add(type);
+		contactSubjects.add(subject);
+	}
+
+	/**
+	 * the box2d bunny touched something, called during the step (on the physics thread if there is one),
+	 * so contacts are only queued here and applied on the game thread at the start of the next tick
+	 */
+	@Override
+	public void beginContact (Contact contact)
+	{
+		Fixture fixtureA = contact.getFixtureA();
+		Fixture fixtureB = contact.getFixtureB();
+		if (fixtureA.getUserData() == BUNNY_FEET || fixtureB.getUserData() == BUNNY_FEET)
+			queueContact(CONTACT_FEET_BEGIN, (fixtureA.getUserData() == BUNNY_FEET ? fixtureB : fixtureA).getBody());
+		// rock fixtures have no user data
+		else if (fixtureA.getUserData() == level.bunnyHead && fixtureB.getUserData() != null)
+			queueContact(CONTACT_ITEM, fixtureB.getUserData());
+		else if (fixtureB.getUserData() == level.bunnyHead && fixtureA.getUserData() != null)
+			queueContact(CONTACT_ITEM, fixtureA.getUserData());
+	}
+
+	/**
+	 * the box2d bunny stopped touching something, also called when a touched body is put to sleep or destroyed,
+	 * queued like the contacts that begin
+	 */
+	@Override
+	public void endContact (Contact contact)
+	{
+		Fixture fixtureA = contact.getFixtureA();
+		Fixture fixtureB = contact.getFixtureB();
+		if (fixtureA.getUserData() != BUNNY_FEET && fixtureB.getUserData() != BUNNY_FEET) return;
+		queueContact(CONTACT_FEET_END, (fixtureA.getUserData() == BUNNY_FEET ? fixtureB : fixtureA).getBody());
+	}
+
+	/**
+	 * not used
+	 */
+	@Override
+	public void preSolve (Contact contact, Manifold oldManifold)
+	{
+	}
+
+	/**
+	 * not used
+	 */
+	@Override
+	public void postSolve (Contact contact, ContactImpulse impulse)
+	{
+	}
+
+	/**
+	 * let some more carrots of the carrot rain fall, the rain is spread over several ticks
+	 * and never has more carrot bodies at once than CARROTS_FALLING_MAX, so even thousands of carrots don't stall a frame
+	 */
+	private void spawnCarrots ()
+	{
+		int numCarrots = Math.min(carrotsToSpawn, Constants.CARROTS_SPAWN_PER_TICK);
+		numCarrots = Math.min(numCarrots, Constants.CARROTS_FALLING_MAX - level.carrots.size);
+		if (numCarrots <= 0) return;
+		carrotsToSpawn -= numCarrots;
+		float radius = Constants.CARROTS_SPAWN_RADIUS;
 		float carrotShapeScale = 0.5f;
 
 		// create carrots with box2d body and fixture
 		for (int i = 0; i < numCarrots; i++)
 		{
-			Carrot carrot = new Carrot();
+			Carrot carrot = level.obtainCarrot();
 			// calculate rnadom spawn position, rotation, and scale
 			float x = MathUtils.random(-radius, radius);
 			float y = MathUtils.random(5.0f, 15.0f);
@@ -408,29 +1129,74 @@ public class WorldController extends InputAdapter implements Disposable
 			float carrotScale = MathUtils.random(0.5f, 1.5f);
 			carrot.scale.set(carrotScale, carrotScale);
 			// create box2d body for carrot with start position and angle of rotation
-			BodyDef bodyDef = new BodyDef();
-			bodyDef.position.set(pos);
-			bodyDef.position.add(x, y);
-			bodyDef.angle = rotation;
-			Body body = b2world.createBody(bodyDef);
-			body.setType(BodyType.DynamicBody);
+			carrotBodyDef.position.set(carrotSpawnPosition);
+			carrotBodyDef.position.add(x, y);
+			carrotBodyDef.angle = rotation;
+			Body body = b2world.createBody(carrotBodyDef);
 			carrot.body = body;
 			// create rectangular shape for carrot to allow interactions (collisions) with other objects
-			PolygonShape polygonShape = new PolygonShape();
 			float halfWidth = carrot.bounds.width / 2.0f * carrotScale;
 			float halfHeight = carrot.bounds.height / 2.0f * carrotScale;
-			polygonShape.setAsBox(halfWidth * carrotShapeScale, halfHeight * carrotShapeScale);
-			// set physical attributes
-			FixtureDef fixtureDef = new FixtureDef();
-			fixtureDef.shape = polygonShape;
-			fixtureDef.density = 50;
-			fixtureDef.restitution = 0.5f;
-			fixtureDef.friction = 0.5f;
-			body.createFixture(fixtureDef);
-			polygonShape.dispose();
-			// finall, add new carrot to list for updating/rendering
-			level.carrots.add(carrot);
+			carrotShape.setAsBox(halfWidth * carrotShapeScale, halfHeight * carrotShapeScale);
+			body.createFixture(carrotFixtureDef);
+			carrot.position.set(carrotBodyDef.position);
+			carrot.rotation = rotation * MathUtils.radiansToDegrees;
+			carrot.savePosition();
+		}
+	}
+
+	/**
+	 * bake carrots that came to rest and drop carrots that fell into the water,
+	 * the carrot rain only costs physics while the carrots fall
+	 * @param deltaTime
+	 */
+	private void settleCarrots (float deltaTime)
+	{
+		for (int i = level.carrots.size - 1; i >= 0; i--)
+		{
+			Carrot carrot = level.carrots.get(i);
+			Body body = carrot.body;
+			Vector2 carrotPosition = body.getPosition();
+			if (carrotPosition.y < WATER_LEVEL)
+			{
+				b2world.destroyBody(body);
+				level.freeCarrot(i);
+				continue;
+			}
+			// carrots on a bobbing rock never sleep, they are at rest once they move with the rock
+			Rock support = findSupport(carrotPosition.x, carrotPosition.y);
+			float supportVelocityX = support == null ? 0 : support.lastMove.x / deltaTime;
+			float supportVelocityY = support == null ? 0 : support.lastMove.y / deltaTime;
+			if (body.getLinearVelocity().dst(supportVelocityX, supportVelocityY) < Constants.CARROTS_REST_SPEED
+					&& Math.abs(body.getAngularVelocity()) < Constants.CARROTS_REST_SPEED)
+				carrot.restTime += deltaTime;
+			else
+				carrot.restTime = 0;
+			if (body.isAwake() && carrot.restTime < Constants.CARROTS_BAKE_TIME) continue;
+			carrot.position.set(carrotPosition);
+			carrot.rotation = body.getAngle() * MathUtils.radiansToDegrees;
+			b2world.destroyBody(body);
+			level.bakeCarrot(i, support);
+		}
+	}
+
+	/**
+	 * find the rock a carrot rests on, carrots only collide with rocks so nothing else can hold one up
+	 * @param x
+	 * @param y
+	 * @return the highest rock below the point, or null
+	 */
+	private Rock findSupport (float x, float y)
+	{
+		Rock support = null;
+		level.rockGrid.query(x, 0, nearbyRocks);
+		for (Rock rock : nearbyRocks)
+		{
+			float top = rock.position.y + rock.bounds.height;
+			if (x < rock.position.x || x > rock.position.x + rock.bounds.width || top > y) continue;
+			if (support == null || top > support.position.y + support.bounds.height) support = rock;
 		}
+		return support;
 	}
 
 	/**
@@ -442,9 +1208,9 @@ public class WorldController extends InputAdapter implements Disposable
 		{
 			goalReached = true;
 			timeLeftGameOverDelay = Constants.TIME_DELAY_GAME_FINISHED;
-			Vector2 centerPosBunnyHead = new Vector2(level.bunnyHead.position);
-			centerPosBunnyHead.x += level.bunnyHead.bounds.width;
-			spawnCarrots(centerPosBunnyHead, Constants.CARROTS_SPAWN_MAX, Constants.CARROTS_SPAWN_RADIUS);
+			carrotSpawnPosition.set(level.bunnyHead.position);
+			carrotSpawnPosition.x += level.bunnyHead.bounds.width;
+			carrotsToSpawn = Constants.CARROTS_SPAWN_MAX;
 		}
 	}
 
@@ -454,7 +1220,11 @@ public class WorldController extends InputAdapter implements Disposable
 	@Override
 	public void dispose ()
 	{
+		if (physicsThread != null)
+			physicsThread.dispose();
 		if (b2world != null)
 			b2world.dispose();
+		if (carrotShape != null)
+			carrotShape.dispose();
 	}
 }
\ No newline at end of file
@@ -2,7 +2,12 @@ package com.lashleygdx.game.world;
 
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.maps.MapProperties;
+import com.badlogic.gdx.maps.tiled.TiledMap;
+import com.badlogic.gdx.maps.tiled.renderers.OrthoCachedTiledMapRenderer;
+import com.badlogic.gdx.math.Matrix4;
 import com.badlogic.gdx.utils.Disposable;
 import com.lashleygdx.game.util.Constants;
 import com.badlogic.gdx.graphics.g2d.BitmapFont;
@@ -11,6 +16,7 @@ import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.physics.box2d.Box2DDebugRenderer;
 import com.badlogic.gdx.graphics.glutils.ShaderProgram;
 import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.StringBuilder;
 
 /**
  * World Renderer draws assets/objects/world
@@ -24,8 +30,107 @@ public class WorldRenderer implements Disposable
 	private OrthographicCamera cameraGUI;
 
 	private static final boolean DEBUG_DRAW_BOX2D_WORLD = false;
+	// rocks and the goal are drawn from cached geometry instead of the sprite batch
+	private static final boolean USE_STATIC_GEOMETRY = true;
+	private StaticGeometry staticGeometry;
 	private Box2DDebugRenderer b2debugRenderer;
 	private ShaderProgram shaderMonochrome;
+	// the same shader for sprite caches, they set other matrix uniforms than the sprite batch
+	private ShaderProgram shaderMonochromeCache;
+
+	// cached tile layer geometry, only rebuilt when the camera leaves the cached area
+	private OrthoCachedTiledMapRenderer tiledMapRenderer;
+	private TiledMap tiledMap;
+	private Matrix4 tiledMapProjection = new Matrix4();
+	// numbers drawn every frame are written here instead of into new strings
+	private StringBuilder text = new StringBuilder();
+
+	// world and gui are drawn through a render queue, sorted to flush the batch as little as possible
+	private final RenderQueue queue = new RenderQueue();
+	// render calls of the last frame and of the one being drawn, batch flushes and cached geometry draws
+	private int renderCalls;
+	private int frameRenderCalls;
+
+	// parts of the world drawn without the batch
+	private final RenderQueue.Renderable tiledMapLayers = new RenderQueue.Renderable()
+	{
+		@Override
+		public void render (SpriteBatch batch)
+		{
+			Level level = worldController.level;
+			batch.end();
+			renderTiledMap(level.getTiledMap(), level.getOriginX());
+			batch.begin();
+		}
+	};
+	private final RenderQueue.Renderable staticGeometryLayer = new RenderQueue.Renderable()
+	{
+		@Override
+		public void render (SpriteBatch batch)
+		{
+			batch.end();
+			staticGeometry.render(worldController.level, camera, GamePreferences.instance.useMonochromeShader);
+			batch.begin();
+		}
+	};
+
+	// parts of the gui, icons and text are sorted apart so the gui takes a flush for each instead of one per switch
+	private final RenderQueue.Renderable guiScoreIcon = new RenderQueue.Renderable()
+	{
+		@Override
+		public void render (SpriteBatch batch)
+		{
+			renderGuiScoreIcon(batch);
+		}
+	};
+	private final RenderQueue.Renderable guiScoreText = new RenderQueue.Renderable()
+	{
+		@Override
+		public void render (SpriteBatch batch)
+		{
+			renderGuiScoreText(batch);
+		}
+	};
+	private final RenderQueue.Renderable guiFeatherPowerupIcon = new RenderQueue.Renderable()
+	{
+		@Override
+		public void render (SpriteBatch batch)
+		{
+			renderGuiFeatherPowerupIcon(batch);
+		}
+	};
+	private final RenderQueue.Renderable guiFeatherPowerupText = new RenderQueue.Renderable()
+	{
+		@Override
+		public void render (SpriteBatch batch)
+		{
+			renderGuiFeatherPowerupText(batch);
+		}
+	};
+	private final RenderQueue.Renderable guiExtraLive = new RenderQueue.Renderable()
+	{
+		@Override
+		public void render (SpriteBatch batch)
+		{
+			renderGuiExtraLive(batch);
+		}
+	};
+	private final RenderQueue.Renderable guiFpsCounter = new RenderQueue.Renderable()
+	{
+		@Override
+		public void render (SpriteBatch batch)
+		{
+			renderGuiFpsCounter(batch);
+		}
+	};
+	private final RenderQueue.Renderable guiGameOverMessage = new RenderQueue.Renderable()
+	{
+		@Override
+		public void render (SpriteBatch batch)
+		{
+			renderGuiGameOverMessage(batch);
+		}
+	};
 
 	/**
 	 * get or create the world renderer
@@ -51,12 +156,27 @@ public class WorldRenderer implements Disposable
 		cameraGUI.setToOrtho(true);	// flip y axis
 		cameraGUI.update();
 		b2debugRenderer = new Box2DDebugRenderer();
+		if (USE_STATIC_GEOMETRY) staticGeometry = new StaticGeometry();
 		shaderMonochrome = new ShaderProgram(Gdx.files.internal(Constants.shaderMonochromeVertex), Gdx.files.internal(Constants.shaderMonochromeFragment));
 		if (!shaderMonochrome.isCompiled())
 		{
 			String msg = "Could not compile shader program: " + shaderMonochrome.getLog();
 			throw new GdxRuntimeException(msg);
 		}
+		// the shader keeps its uniforms, the render queue switches to it without setting them again
+		shaderMonochrome.begin();
+		shaderMonochrome.setUniformf("u_amount", 1.0f);
+		shaderMonochrome.end();
+		shaderMonochromeCache = new SpriteCacheShader(Gdx.files.internal(Constants.shaderMonochromeCacheVertex), Gdx.files.internal(Constants.shaderMonochromeFragment));
+		if (!shaderMonochromeCache.isCompiled())
+		{
+			String msg = "Could not compile shader program: " + shaderMonochromeCache.getLog();
+			throw new GdxRuntimeException(msg);
+		}
+		// tile layers don't set the amount themselves
+		shaderMonochromeCache.begin();
+		shaderMonochromeCache.setUniformf("u_amount", 1.0f);
+		shaderMonochromeCache.end();
 	}
 
 	/**
@@ -64,8 +184,20 @@ public class WorldRenderer implements Disposable
 	 */
 	public void render ()
 	{
+		frameRenderCalls = 0;
 		renderWorld(batch);
 		renderGui(batch);
+		renderCalls = frameRenderCalls;
+	}
+
+	/**
+	 * number of render calls the last frame took, sprite batch flushes and cached geometry draws
+	 * tile layers of Tiled maps are not counted
+	 * @return render calls
+	 */
+	public int getRenderCalls ()
+	{
+		return renderCalls;
 	}
 
 	/**
@@ -74,23 +206,58 @@ public class WorldRenderer implements Disposable
 	 */
 	private void renderWorld(SpriteBatch batch)
 	{
-		worldController.cameraHelper.applyTo(camera);
+		// draw between the last two simulation ticks so motion stays smooth at any frame rate
+		float alpha = worldController.getInterpolationAlpha();
+		worldController.cameraHelper.applyTo(camera, alpha);
+		Level level = worldController.level;
+		// objects outside the camera are not drawn
+		level.setView(camera);
+		level.beginInterpolation(alpha);
 		batch.setProjectionMatrix(camera.combined);
-		batch.begin();
-		if (GamePreferences.instance.useMonochromeShader)
-		{
-			batch.setShader(shaderMonochrome);
-			shaderMonochrome.setUniformf("u_amount", 1.0f);
-		}
-		worldController.level.render(batch);
-		batch.setShader(null);
-		batch.end();
+		queue.setShader(GamePreferences.instance.useMonochromeShader ? shaderMonochrome : null);
+		// tile layers and cached geometry go between the background and the level objects
+		if (level.getTiledMap() != null) queue.add(RenderQueue.LAYER_TILES, null, tiledMapLayers);
+		if (staticGeometry != null) queue.add(RenderQueue.LAYER_GEOMETRY, null, staticGeometryLayer);
+		level.submit(queue, staticGeometry == null);
+		queue.render(batch);
+		frameRenderCalls += queue.getRenderCalls();
+		if (staticGeometry != null) frameRenderCalls += staticGeometry.getNumDrawn();
+		level.endInterpolation();
 		if (DEBUG_DRAW_BOX2D_WORLD)
 		{
+			// the world can't be read while the physics thread steps it
+			worldController.finishPhysics();
 			b2debugRenderer.render(worldController.b2world,  camera.combined);
 		}
 	}
 
+	/**
+	 * render the decoration tile layers of a Tiled map from cached geometry
+	 * @param map
+	 * @param originX level column at world x = 0
+	 */
+	private void renderTiledMap (TiledMap map, int originX)
+	{
+		if (map != tiledMap)
+		{
+			if (tiledMapRenderer != null) tiledMapRenderer.dispose();
+			MapProperties properties = map.getProperties();
+			tiledMapRenderer = new OrthoCachedTiledMapRenderer(map, 1.0f / properties.get("tilewidth", Integer.class));
+			tiledMapRenderer.setBlending(true);
+			tiledMap = map;
+		}
+		tiledMapRenderer.getSpriteCache().setShader(GamePreferences.instance.useMonochromeShader ? shaderMonochromeCache : null);
+
+		float width = camera.viewportWidth * camera.zoom;
+		float height = camera.viewportHeight * camera.zoom;
+		// map coordinates are level columns, world x is relative to the origin column, the level places the map
+		// objects in the same tiles
+		tiledMapProjection.set(camera.combined).translate(-originX, Constants.TILED_MAP_BOTTOM, 0);
+		tiledMapRenderer.setView(tiledMapProjection, camera.position.x + originX - width / 2,
+				camera.position.y - Constants.TILED_MAP_BOTTOM - height / 2, width, height);
+		tiledMapRenderer.render();
+	}
+
 	/**
 	 * resize camera window
 	 * @param width
@@ -107,11 +274,11 @@ public class WorldRenderer implements Disposable
 	}
 
 	/**
-	 * display score
-	 * icon shakes and score displays gradual changes instead of instantly
+	 * display score icon
+	 * icon shakes while the score displays gradual changes
 	 * @param batch
 	 */
-	private void renderGuiScore (SpriteBatch batch)
+	private void renderGuiScoreIcon (SpriteBatch batch)
 	{
 		float x = -15;
 		float y = -15;
@@ -124,7 +291,20 @@ public class WorldRenderer implements Disposable
 			offsetY += MathUtils.sinDeg(shakeAlpha * 2.9f) * shakeDist;
 		}
 		batch.draw(Assets.instance.goldCoin.goldCoin, x, y, offsetX, offsetY, 100, 100, 0.35f, -0.35f,  0);
-		Assets.instance.fonts.defaultBig.draw(batch, "" + (int)worldController.scoreVisual, x + 75, y + 37);
+	}
+
+	/**
+	 * display score
+	 * score displays gradual changes instead of instantly
+	 * @param batch
+	 */
+	private void renderGuiScoreText (SpriteBatch batch)
+	{
+		float x = -15;
+		float y = -15;
+		text.setLength(0);
+		text.append((int)worldController.scoreVisual);
+		Assets.instance.fonts.defaultBig.draw(batch, text, x + 75, y + 37);
 	}
 
 	/**
@@ -159,7 +339,7 @@ public class WorldRenderer implements Disposable
 
 
 	/**
-	 * display fps
+	 * display fps and render calls
 	 * @param batch
 	 */
 	private void renderGuiFpsCounter (SpriteBatch batch)
@@ -183,7 +363,13 @@ public class WorldRenderer implements Disposable
 			// below 30 fps displays red
 			fpsFont.setColor(1, 0, 0, 1);
 		}
-		fpsFont.draw(batch,  "FPS: " + fps, x, y);
+		text.setLength(0);
+		text.append("FPS: ").append(fps);
+		fpsFont.draw(batch, text, x, y);
+		// render calls of the last frame above it
+		text.setLength(0);
+		text.append("Calls: ").append(renderCalls);
+		fpsFont.draw(batch, text, x, y - 15);
 		fpsFont.setColor(1, 1, 1, 1); //white
 	}
 
@@ -194,20 +380,24 @@ public class WorldRenderer implements Disposable
 	private void renderGui (SpriteBatch batch)
 	{
 		batch.setProjectionMatrix(cameraGUI.combined);
-		batch.begin();
+		Texture icons = Assets.instance.goldCoin.goldCoin.getTexture();
+		// the fonts share one texture
+		Texture font = Assets.instance.fonts.defaultBig.getRegion().getTexture();
 		// draw collected gold coins icon + text anchored to top left corner
-		renderGuiScore(batch);
+		queue.add(RenderQueue.LAYER_GUI, icons, guiScoreIcon);
+		queue.add(RenderQueue.LAYER_GUI, font, guiScoreText);
 		// draw collected feather icon anchored below score
-		renderGuiFeatherPowerup(batch);
+		queue.add(RenderQueue.LAYER_GUI, icons, guiFeatherPowerupIcon);
+		queue.add(RenderQueue.LAYER_GUI, font, guiFeatherPowerupText);
 		// draw extra lives icon + text anchored to top right corner
-		renderGuiExtraLive(batch);
+		queue.add(RenderQueue.LAYER_GUI, icons, guiExtraLive);
 		// draw fps text anchored to bottom right corner
 		if (GamePreferences.instance.showFpsCounter)
-			renderGuiFpsCounter(batch);
+			queue.add(RenderQueue.LAYER_GUI, font, guiFpsCounter);
 		// draw game over text
-		renderGuiGameOverMessage(batch);
-
-		batch.end();
+		queue.add(RenderQueue.LAYER_GUI, font, guiGameOverMessage);
+		queue.render(batch);
+		frameRenderCalls += queue.getRenderCalls();
 	}
 
 	/**
@@ -217,6 +407,9 @@ public class WorldRenderer implements Disposable
 	{
 		batch.dispose();
 		shaderMonochrome.dispose();
+		shaderMonochromeCache.dispose();
+		if (tiledMapRenderer != null) tiledMapRenderer.dispose();
+		if (staticGeometry != null) staticGeometry.dispose();
 	}
 
 	/**
@@ -238,10 +431,10 @@ public class WorldRenderer implements Disposable
 	}
 
 	/**
-	 * draw the gui to show when you have feather powerup
+	 * draw the icon to show when you have feather powerup
 	 * @param batch
 	 */
-	private void renderGuiFeatherPowerup (SpriteBatch batch)
+	private void renderGuiFeatherPowerupIcon (SpriteBatch batch)
 	{
 		float x = -15;
 		float y = 30;
@@ -257,7 +450,23 @@ public class WorldRenderer implements Disposable
 			}
 			batch.draw(Assets.instance.feather.feather, x, y, 50, 50, 100, 100, 0.35f, -0.35f, 0);
 			batch.setColor(1, 1, 1, 1);
-			Assets.instance.fonts.defaultSmall.draw(batch,  "" + (int)timeLeftFeatherPowerup, x + 60, y + 57);
+		}
+	}
+
+	/**
+	 * draw the seconds left of the feather powerup
+	 * @param batch
+	 */
+	private void renderGuiFeatherPowerupText (SpriteBatch batch)
+	{
+		float x = -15;
+		float y = 30;
+		float timeLeftFeatherPowerup = worldController.level.bunnyHead.timeLeftFeatherPowerup;
+		if (timeLeftFeatherPowerup > 0)
+		{
+			text.setLength(0);
+			text.append((int)timeLeftFeatherPowerup);
+			Assets.instance.fonts.defaultSmall.draw(batch, text, x + 60, y + 57);
 		}
 	}
 }
\ No newline at end of file
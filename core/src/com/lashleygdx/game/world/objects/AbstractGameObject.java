@@ -6,12 +6,13 @@ import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.physics.box2d.Body;
 import com.badlogic.gdx.graphics.g2d.Animation;
+import com.lashleygdx.game.world.RenderQueue;
 
 /**
  * Abstract game objects
  * @author Chris Lashley
  */
-public abstract class AbstractGameObject
+public abstract class AbstractGameObject implements RenderQueue.Renderable
 {
 	public Vector2 position;
 	public Vector2 dimension;
@@ -28,9 +29,19 @@ public abstract class AbstractGameObject
 	// box2d
 	public Body body;
 
+	// index in the level's array of objects of its kind, kept by the level so it can remove the object without a search
+	public int levelIndex = -1;
+
 	public float stateTime;
 	public Animation animation;
 
+	// position at the last simulation tick, rendering interpolates from there to the current one
+	public Vector2 lastPosition;
+	public float lastRotation;
+	// current position while an interpolated one is drawn
+	private Vector2 tickPosition;
+	private float tickRotation;
+
 	/**
 	 * all objects should have these variables
 	 */
@@ -46,6 +57,48 @@ public abstract class AbstractGameObject
 		friction = new Vector2();
 		acceleration = new Vector2();
 		bounds = new Rectangle();
+		lastPosition = new Vector2();
+		tickPosition = new Vector2();
+	}
+
+	/**
+	 * remember the position before a simulation tick, or after a jump that should not be interpolated
+	 */
+	public void savePosition ()
+	{
+		lastPosition.set(position);
+		lastRotation = rotation;
+	}
+
+	/**
+	 * move to the position between the last two simulation ticks for drawing
+	 * @param alpha 0 for the last tick, 1 for the current one
+	 */
+	public void beginInterpolation (float alpha)
+	{
+		tickPosition.set(position);
+		tickRotation = rotation;
+		position.set(lastPosition).lerp(tickPosition, alpha);
+		rotation = lastRotation + (tickRotation - lastRotation) * alpha;
+	}
+
+	/**
+	 * back to the current position after drawing
+	 */
+	public void endInterpolation ()
+	{
+		position.set(tickPosition);
+		rotation = tickRotation;
+	}
+
+	/**
+	 * move along x together with the last position, so the move is not interpolated (world origin shift)
+	 * @param amountX
+	 */
+	public void translateX (float amountX)
+	{
+		position.x += amountX;
+		lastPosition.x += amountX;
 	}
 
 	/**
@@ -6,7 +6,6 @@ import com.lashleygdx.game.util.Constants;
 import com.lashleygdx.game.world.Assets;
 import com.lashleygdx.game.util.CharacterSkin;
 import com.lashleygdx.game.util.GamePreferences;
-import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.g2d.ParticleEffect;
 import com.badlogic.gdx.math.MathUtils;
 import com.lashleygdx.game.util.AudioManager;
@@ -36,7 +35,7 @@ public class BunnyHead extends AbstractGameObject
 	public boolean hasFeatherPowerup;
 	public float timeLeftFeatherPowerup;
 
-	public ParticleEffect dustParticles = new ParticleEffect();
+	public ParticleEffect dustParticles;
 
 	public enum VIEW_DIRECTION
 	{	LEFT,
@@ -69,7 +68,6 @@ public class BunnyHead extends AbstractGameObject
 		animCopterTransform = Assets.instance.bunny.animCopterTransform;
 		animCopterTransformBack = Assets.instance.bunny.animCopterTransformBack;
 		animCopterRotate = Assets.instance.bunny.animCopterRotate;
-		setAnimation(animNormal);
 
 		//		regHead = Assets.instance.bunny.head;
 		// center image on game object
@@ -80,6 +78,20 @@ public class BunnyHead extends AbstractGameObject
 		terminalVelocity.set(3.0f, 4.0f);
 		friction.set(12.0f, 0.0f);
 		acceleration.set(0.0f, -25.0f);
+
+		// particles (copy shares the sprites of the loaded effect, so this is safe off the render thread)
+		dustParticles = new ParticleEffect(Assets.instance.particles.dust);
+
+		reset();
+	}
+
+	/**
+	 * put the player back into its start state (position is set by the level)
+	 */
+	public void reset()
+	{
+		setAnimation(animNormal);
+		velocity.set(0, 0);
 		// view direction
 		viewDirection = VIEW_DIRECTION.RIGHT;
 		// jump state
@@ -88,9 +100,8 @@ public class BunnyHead extends AbstractGameObject
 		//powerups
 		hasFeatherPowerup = false;
 		timeLeftFeatherPowerup = 0;
-
-		// particles
-		dustParticles.load(Gdx.files.internal("particles/dust.pfx"), Gdx.files.internal("particles"));
+		// let running dust finish
+		dustParticles.allowCompletion();
 	}
 
 	/**
@@ -148,10 +159,17 @@ public class BunnyHead extends AbstractGameObject
 
 	/**
 	 * update player variables
+	 * a box2d bunny works out its velocity the same way, the world controller hands it to the body
+	 * and the body moves the bunny
 	 */
 	@Override
 	public void update (float deltaTime)
 	{
+		if (body != null)
+		{
+			updateMotionX(deltaTime);
+			updateMotionY(deltaTime);
+		}
 		super.update(deltaTime);
 		if (velocity.x != 0)
 		{
@@ -240,15 +258,13 @@ public class BunnyHead extends AbstractGameObject
 
 	/**
 	 * change player color when in feather powerup state
+	 * the dust particles are drawn by the level, behind the items
 	 */
 	@Override
 	public void render(SpriteBatch batch)
 	{
 		TextureRegion reg = null;
 
-		// draw particles
-		dustParticles.draw(batch);
-
 		// apply selected skin color
 		batch.setColor(CharacterSkin.values()[GamePreferences.instance.charSkin].getColor());
 
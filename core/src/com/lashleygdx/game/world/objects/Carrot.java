@@ -2,16 +2,26 @@ package com.lashleygdx.game.world.objects;
 
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Pool.Poolable;
 import com.lashleygdx.game.world.Assets;
 
 /**
  * carrots that rain down when goal is reached
+ * once a carrot comes to rest it is baked: its body is destroyed and it stays put on the rock below it
  * @author Chris Lashley
  */
-public class Carrot extends AbstractGameObject
+public class Carrot extends AbstractGameObject implements Poolable
 {
 	private TextureRegion regCarrot;
 
+	// time the falling carrot has been at rest on its rock
+	public float restTime;
+	// rock a baked carrot lies on, null if it lies on nothing that moves
+	private Rock support;
+	private final Vector2 supportOffset = new Vector2();
+	private boolean baked;
+
 	public Carrot ()
 	{
 		init();
@@ -31,6 +41,57 @@ public class Carrot extends AbstractGameObject
 		origin.set(dimension.x / 2, dimension.y / 2);
 	}
 
+	/**
+	 * recycle a carrot for the next carrot rain, its body has been destroyed
+	 */
+	@Override
+	public void reset ()
+	{
+		body = null;
+		position.set(0, 0);
+		rotation = 0;
+		scale.set(1, 1);
+		stateTime = 0;
+		restTime = 0;
+		support = null;
+		baked = false;
+	}
+
+	/**
+	 * turn a carrot at rest into a sprite that only follows the rock below it, its body was destroyed
+	 * @param support rock below the carrot, or null
+	 */
+	public void bake (Rock support)
+	{
+		body = null;
+		baked = true;
+		this.support = support;
+		if (support != null) supportOffset.set(position).sub(support.position);
+	}
+
+	/**
+	 * check if a carrot came to rest
+	 * @return true if the carrot has no body anymore
+	 */
+	public boolean isBaked ()
+	{
+		return baked;
+	}
+
+	/**
+	 * falling carrots follow their body, baked carrots their rock
+	 */
+	@Override
+	public void update (float deltaTime)
+	{
+		if (!baked)
+		{
+			super.update(deltaTime);
+			return;
+		}
+		if (support != null) position.set(support.position).add(supportOffset);
+	}
+
 	/**
 	 * draw a carrot
 	 */
@@ -3,7 +3,6 @@ package com.lashleygdx.game.world.objects;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.MathUtils;
-import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.utils.Array;
 import com.lashleygdx.game.world.Assets;
 
@@ -96,24 +95,41 @@ public class Clouds extends AbstractGameObject
 	{
 		Cloud cloud = new Cloud();
 		cloud.dimension.set(dimension);
+		respawnCloud(cloud);
+		return cloud;
+	}
+
+	/**
+	 * send a cloud back to the right edge with a new image, height and speed
+	 * @param cloud
+	 */
+	private void respawnCloud (Cloud cloud)
+	{
 		// select random cloud image
 		cloud.setRegion(regClouds.random());
 		//position
-		Vector2 pos = new Vector2();
-		pos.x = length + 10; // position after end of level
-		pos.y += 1.75; // base position
+		cloud.position.x = position.x + length + 10; // position after end of level (or streamed window)
+		cloud.position.y = 1.75f; // base position
 		// random height
-		pos.y += MathUtils.random(0.0f, 0.2f) * (MathUtils.randomBoolean() ? 1 : -1);
-		cloud.position.set(pos);
+		cloud.position.y += MathUtils.random(0.0f, 0.2f) * (MathUtils.randomBoolean() ? 1 : -1);
 		// speed
-		Vector2 speed = new Vector2();
-		speed.x += 0.5f;	// base speed
+		float speed = 0.5f;	// base speed
 		// random additional speed
-		speed.x += MathUtils.random(0.0f, 0.75f);
-		cloud.terminalVelocity.set(speed);
-		speed.x *= -1;	// move left
-		cloud.velocity.set(speed);
-		return cloud;
+		speed += MathUtils.random(0.0f, 0.75f);
+		cloud.terminalVelocity.set(speed, 0);
+		cloud.velocity.set(-speed, 0);	// move left
+	}
+
+	/**
+	 * move the clouds and the area they drift through (world origin shift)
+	 * @param amountX
+	 */
+	@Override
+	public void translateX (float amountX)
+	{
+		super.translateX(amountX);
+		for (Cloud cloud : clouds)
+			cloud.translateX(amountX);
 	}
 
 	/**
@@ -136,11 +152,14 @@ public class Clouds extends AbstractGameObject
 		{
 			Cloud cloud = clouds.get(i);
 			cloud.update(deltaTime);
-			if (cloud.position.x < -10)	// cloud moved outside left edge of world
+			if (cloud.position.x < position.x - 10)	// cloud moved outside left edge of world
 			{
-				// destroy cloud
-				clouds.removeIndex(i);
-				clouds.add(spawnCloud());
+				// reuse the cloud instead of destroying it
+				boolean jumped = cloud.position.x < position.x - length;
+				respawnCloud(cloud);
+				// window jumped ahead (streamed levels): spread clouds over it instead of queuing them at its end
+				if (jumped)
+					cloud.position.x = position.x + MathUtils.random(0.0f, length);
 			}
 		}
 	}
@@ -2,6 +2,7 @@ package com.lashleygdx.game.world.objects;
 
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.utils.Pool.Poolable;
 import com.lashleygdx.game.world.Assets;
 
 /**
@@ -9,11 +10,13 @@ import com.lashleygdx.game.world.Assets;
  * feathers are added to the score
  * @author Chris Lashley
  */
-public class Feather extends AbstractGameObject
+public class Feather extends AbstractGameObject implements Poolable
 {
 	private TextureRegion regFeather;
 
 	public boolean collected;
+	// level data record the feather was placed from, -1 for generated ones
+	public int record = -1;
 
 	/**
 	 * constructor
@@ -38,6 +41,17 @@ public class Feather extends AbstractGameObject
 		collected = false;
 	}
 
+	/**
+	 * recycle a feather for another part of a streamed level, or restore it when the level restarts
+	 */
+	@Override
+	public void reset ()
+	{
+		position.set(0, 0);
+		collected = false;
+		record = -1;
+	}
+
 	/**
 	 * draw a feather
 	 */
@@ -1,6 +1,7 @@
 package com.lashleygdx.game.world.objects;
 
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.SpriteCache;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.lashleygdx.game.world.Assets;
 
@@ -41,4 +42,15 @@ public class Goal extends AbstractGameObject
 		batch.draw(reg.getTexture(), position.x - origin.x, position.y - origin.y, origin.x, origin.y, dimension.x, dimension.y,
 				scale.x, scale.y, rotation, reg.getRegionX(), reg.getRegionY(), reg.getRegionWidth(), reg.getRegionHeight(), false, false);
 	}
+
+	/**
+	 * add the goal to a sprite cache, the same quad render draws
+	 * @param cache between beginCache and endCache
+	 */
+	public void cache (SpriteCache cache)
+	{
+		TextureRegion reg = regGoal;
+		cache.add(reg.getTexture(), position.x - origin.x, position.y - origin.y, origin.x, origin.y, dimension.x, dimension.y,
+				scale.x, scale.y, rotation, reg.getRegionX(), reg.getRegionY(), reg.getRegionWidth(), reg.getRegionHeight(), false, false);
+	}
 }
\ No newline at end of file
@@ -3,17 +3,20 @@ package com.lashleygdx.game.world.objects;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.Pool.Poolable;
 import com.lashleygdx.game.world.Assets;
 
 /**
  * gold coins are added to score
  * @author Chris Lashley
  */
-public class GoldCoin extends AbstractGameObject
+public class GoldCoin extends AbstractGameObject implements Poolable
 {
 //	private TextureRegion regGoldCoin;
 
 	public boolean collected;
+	// level data record the coin was placed from, -1 for generated ones
+	public int record = -1;
 
 	/**
 	 * constructor
@@ -40,6 +43,18 @@ public class GoldCoin extends AbstractGameObject
 		collected = false;
 	}
 
+	/**
+	 * recycle a gold coin for another part of a streamed level, or restore it when the level restarts
+	 */
+	@Override
+	public void reset ()
+	{
+		position.set(0, 0);
+		stateTime = MathUtils.random(0.0f, 1.0f);
+		collected = false;
+		record = -1;
+	}
+
 	/**
 	 * draw uncollected gold coins
 	 */
@@ -1,7 +1,7 @@
 package com.lashleygdx.game.world.objects;
 
+import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
-import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.MathUtils;
 import com.lashleygdx.game.world.Assets;
 import com.badlogic.gdx.math.Vector2;
@@ -12,10 +12,16 @@ import com.badlogic.gdx.math.Vector2;
  */
 public class Mountains extends AbstractGameObject
 {
-	private TextureRegion regMountainLeft;
-	private TextureRegion regMountainRight;
+	private Texture texMountains;
 
 	private int length;
+	// width of the window around the camera of a streamed level, these levels have no ends, 0 to span the level
+	private float windowWidth;
+	// part of the world x axis the camera sees, 0 wide until the level gets a view
+	private float viewX;
+	private float viewWidth;
+	// level column at world x = 0, parallax scrolls relative to the level start
+	private int originX;
 
 	/**
 	 * constructor
@@ -34,8 +40,7 @@ public class Mountains extends AbstractGameObject
 	{
 		dimension.set(10, 2);
 
-		regMountainLeft = Assets.instance.levelDecoration.mountainLeft;
-		regMountainRight = Assets.instance.levelDecoration.mountainRight;
+		texMountains = Assets.instance.levelDecoration.mountains;
 
 		// shift mountain and extend length
 		origin.x = -dimension.x * 2;
@@ -43,7 +48,37 @@ public class Mountains extends AbstractGameObject
 	}
 
 	/**
-	 * draw a mountain at specified location with specified tint
+	 * only draw the mountains around the camera instead of the whole level (streamed and endless levels)
+	 * @param windowWidth
+	 */
+	public void setWindowWidth (float windowWidth)
+	{
+		this.windowWidth = windowWidth;
+	}
+
+	/**
+	 * only draw the mountains the camera sees
+	 * @param x left edge of the view
+	 * @param width width of the view
+	 */
+	public void setView (float x, float width)
+	{
+		viewX = x;
+		viewWidth = width;
+	}
+
+	/**
+	 * keep the parallax in place when the world origin moves
+	 * @param originX level column at world x = 0
+	 */
+	public void setOriginX (int originX)
+	{
+		this.originX = originX;
+	}
+
+	/**
+	 * draw a layer of mountains at specified location with specified tint
+	 * the layer is one quad over the view, the texture repeats the pair of mountains along it
 	 * @param batch
 	 * @param offsetX
 	 * @param offsetY
@@ -51,31 +86,46 @@ public class Mountains extends AbstractGameObject
 	 */
 	private void drawMountain (SpriteBatch batch, float offsetX, float offsetY, float tintColor, float parallaxSpeedX)
 	{
-		TextureRegion reg = null;
-		batch.setColor(tintColor, tintColor, tintColor, 1);
-		float xRel = dimension.x * offsetX;
-		float yRel = dimension.y * offsetY;
+		float pairWidth = 2 * dimension.x;
+		// a layer scrolling at parallaxSpeedX lags behind the shifted origin by originX * (1 - parallaxSpeedX)
+		double originOffset = originX * (double)(parallaxSpeedX - 1);
+		// windows repeat every pair of mountains, so only the remainder matters and stays small
+		if (windowWidth > 0) originOffset %= pairWidth;
+		// where the first pair of mountains starts
+		float start = origin.x + dimension.x * offsetX + (float)originOffset + position.x * parallaxSpeedX;
+		float y = position.y + origin.y + dimension.y * offsetY;
 
-		// mountains span the whole level
-		int mountainLength = 0;
-		mountainLength += MathUtils.ceil (length / (2 * dimension.x) * (1 - parallaxSpeedX));
-		mountainLength += MathUtils.ceil (0.5f + offsetX);
-		for (int i = 0; i < mountainLength; i++)
+		// the view, or without one the window around the camera (position is the camera position) or the whole level
+		float left = start;
+		float right = Float.POSITIVE_INFINITY;
+		if (viewWidth > 0)
 		{
-			// mountain left
-			reg = regMountainLeft;
-			batch.draw(reg.getTexture(), origin.x + xRel + position.x * parallaxSpeedX, position.y + origin.y + yRel, origin.x, origin.y,
-					dimension.x, dimension.y, scale.x, scale.y, rotation, reg.getRegionX(), reg.getRegionY(),
-					reg.getRegionWidth(), reg.getRegionHeight(), false, false);
-			xRel += dimension.x;
-
-			// mountain right
-			reg = regMountainRight;
-			batch.draw(reg.getTexture(), origin.x + xRel + position.x * parallaxSpeedX, position.y + origin.y + yRel, origin.x, origin.y,
-					dimension.x, dimension.y, scale.x, scale.y, rotation, reg.getRegionX(), reg.getRegionY(),
-					reg.getRegionWidth(), reg.getRegionHeight(), false, false);
-			xRel += dimension.x;
+			left = viewX;
+			right = viewX + viewWidth;
 		}
+		else if (windowWidth > 0)
+		{
+			left = position.x - windowWidth / 2;
+			right = left + windowWidth;
+		}
+		if (windowWidth <= 0)
+		{
+			// mountains span the whole level
+			int mountainLength = 0;
+			mountainLength += MathUtils.ceil (length / pairWidth * (1 - parallaxSpeedX));
+			mountainLength += MathUtils.ceil (0.5f + offsetX);
+			left = Math.max(left, start);
+			right = Math.min(right, start + mountainLength * pairWidth);
+			if (left >= right) return;
+		}
+
+		// one texture width per pair of mountains, whole repeats are left out so the coordinates stay small
+		float u = (left - start) / pairWidth;
+		u -= MathUtils.floor(u);
+		float u2 = u + (right - left) / pairWidth;
+		batch.setColor(tintColor, tintColor, tintColor, 1);
+		// the texture's first row is its top
+		batch.draw(texMountains, left, y, right - left, dimension.y, u, 1, u2, 0);
 		// reset color to white
 		batch.setColor(1, 1, 1, 1);
 	}
@@ -1,28 +1,59 @@
 package com.lashleygdx.game.world.objects;
 
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.SpriteCache;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.lashleygdx.game.world.Assets;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.Pool.Poolable;
 
 /**
  * rocks are the platforms the player moves around on
  * @author Chris Lashley
  */
-public class Rock extends AbstractGameObject
+public class Rock extends AbstractGameObject implements Poolable
 {
-	private final float FLOAT_CYCLE_TIME = 2.0f;
-	private final float FLOAT_AMPLITUDE = 0.25f;
+	private static final float FLOAT_CYCLE_TIME = 2.0f;
+	private static final float FLOAT_AMPLITUDE = 0.25f;
+	// rocks bob down from where they are placed and back up
+	private static final RockPath BOBBING = new RockPath(FLOAT_CYCLE_TIME, 0, 0, 0, -FLOAT_AMPLITUDE);
+	// rocks start bobbing at one of a few phases, rocks at the same phase move in step and can share a body
+	private static final int FLOAT_PHASES = 4;
+	private static final float LIFT_SEGMENT_TIME = 2.5f;
+	private static final float LIFT_DEPTH = 1.0f;
+	// lifts glide down and back up, all in step
+	private static final RockPath LIFT = new RockPath(LIFT_SEGMENT_TIME, 0, 0, 0, -LIFT_DEPTH);
+
+	// paths level records refer to by number
+	public static final int PATH_BOBBING = 0;
+	public static final int PATH_LIFT = 1;
+	private static final RockPath[] PATHS = {BOBBING, LIFT};
 
 	private TextureRegion regEdge;
 	private TextureRegion regMiddle;
 
 	private int length;
 
-	private float floatCycleTimeLeft;
-	private boolean floatingDownwards;
-	private Vector2 floatTargetPosition;
+	// path the rock follows around where it was placed, how far along it was at level time 0, and how far it is now
+	private RockPath path;
+	private final Vector2 anchor = new Vector2();
+	private float phase;
+	private float pathTime;
+	// phase the rock bobs at when it isn't given another path
+	private float bobbingPhase;
+
+	// distance moved by the last update, the player is swept against rocks relative to it
+	public final Vector2 lastMove = new Vector2();
+
+	// marks rocks found in the active region while the level sorts out which rocks to wake
+	public boolean inActiveRegion;
+	private boolean active;
+
+	// rocks moving in step that share one compound body, moved by the first of them, null if the rock has its own body
+	public Array<Rock> group;
 
 	/**
 	 * constructor
@@ -45,9 +76,145 @@ public class Rock extends AbstractGameObject
 		// Start length of this rock
 		setLength(1);
 
-		floatingDownwards = false;
-		floatCycleTimeLeft = MathUtils.random(0, FLOAT_CYCLE_TIME / 2);
-		floatTargetPosition = null;
+		path = BOBBING;
+		bobbingPhase = MathUtils.random(FLOAT_PHASES - 1) * FLOAT_CYCLE_TIME / 2 / FLOAT_PHASES;
+		phase = bobbingPhase;
+		pathTime = phase;
+	}
+
+	/**
+	 * recycle a rock for another part of a streamed level, or restore it when the level restarts
+	 * the rock keeps its path and phase, so a restarted level moves like it did and rocks sharing a body stay in step
+	 */
+	@Override
+	public void reset ()
+	{
+		position.set(0, 0);
+		anchor.set(0, 0);
+		lastMove.set(0, 0);
+		stateTime = 0;
+		setLength(1);
+	}
+
+	/**
+	 * place a rock, it follows its path around this point
+	 * @param x
+	 * @param y
+	 */
+	public void setAnchor (float x, float y)
+	{
+		anchor.set(x, y);
+		path.getOffset(pathTime, position);
+		position.add(anchor);
+	}
+
+	/**
+	 * make a rock a moving platform, rocks bob in place unless they get another path
+	 * rocks sharing a compound body have to get their paths before the level's physics is built
+	 * @param path
+	 * @param phase seconds along the path at level time 0
+	 */
+	public void setPath (RockPath path, float phase)
+	{
+		this.path = path;
+		this.phase = phase;
+		pathTime = phase;
+		setAnchor(anchor.x, anchor.y);
+	}
+
+	/**
+	 * give a rock one of the paths level records refer to, lifts start together, bobbing rocks at their own phase
+	 * @param pathId one of the PATH constants
+	 */
+	public void setPath (int pathId)
+	{
+		if (pathId < 0 || pathId >= PATHS.length) throw new GdxRuntimeException("Unknown rock path: " + pathId);
+		setPath(PATHS[pathId], pathId == PATH_BOBBING ? bobbingPhase : 0);
+	}
+
+	/**
+	 * get the path a rock follows
+	 * @return path
+	 */
+	public RockPath getPath ()
+	{
+		return path;
+	}
+
+	/**
+	 * get how far a rock is along its path at level time 0, rocks with the same path and phase move in step
+	 * @return seconds along the path
+	 */
+	public float getPhase ()
+	{
+		return phase;
+	}
+
+	/**
+	 * get how far a rock is along its path
+	 * @return seconds along the path
+	 */
+	public float getPathTime ()
+	{
+		return pathTime;
+	}
+
+	/**
+	 * get the point a rock follows its path around
+	 * @return anchor, don't modify
+	 */
+	public Vector2 getAnchor ()
+	{
+		return anchor;
+	}
+
+	/**
+	 * put a rock where its path has it at some level time, without a move to sweep against
+	 * rocks are synced when they are placed and when they wake up
+	 * @param time level time in seconds
+	 */
+	public void syncPath (double time)
+	{
+		pathTime = (float)((phase + time) % path.getDuration());
+		path.getOffset(pathTime, position);
+		position.add(anchor);
+		lastMove.set(0, 0);
+		savePosition();
+	}
+
+	/**
+	 * the anchor moves with the rock
+	 */
+	@Override
+	public void translateX (float amountX)
+	{
+		super.translateX(amountX);
+		anchor.x += amountX;
+	}
+
+	/**
+	 * wake the box2d body of a rock near the camera, or put it to sleep far from it
+	 * sleeping rocks stand still and catch up with the level time when they wake
+	 * @param active
+	 */
+	public void setActive (boolean active)
+	{
+		this.active = active;
+		// rocks sharing a body all wake and sleep together
+		if (body.isActive() != active) body.setActive(active);
+		if (active) return;
+		// a sleeping rock stands still
+		lastMove.set(0, 0);
+		savePosition();
+	}
+
+	/**
+	 * check if a rock is simulated
+	 * @return true if the rock is near the camera
+	 */
+	public boolean isActive ()
+	{
+		return active;
 	}
 
 	/**
@@ -61,6 +228,15 @@ public class Rock extends AbstractGameObject
 		bounds.set(0, 0, dimension.x * length, dimension.y);
 	}
 
+	/**
+	 * get a rock length
+	 * @return length
+	 */
+	public int getLength ()
+	{
+		return length;
+	}
+
 	/**
 	 * modify a rock length
 	 * @param amount
@@ -106,45 +282,66 @@ public class Rock extends AbstractGameObject
 				reg.getRegionWidth(), reg.getRegionHeight(), true, false);
 	}
 
-//	/**
-//	 * rocks bob up and down slightly (original)
-//	 */
-//	@Override
-//	public void update (float deltaTime)
-//	{
-//		super.update(deltaTime);
-//
-//		floatCycleTimeLeft -= deltaTime;
-//		if (floatTargetPosition == null)
-//		{
-//			floatTargetPosition = new Vector2(position);
-//		}
-//		if (floatCycleTimeLeft <= 0)
-//		{
-//			floatCycleTimeLeft = FLOAT_CYCLE_TIME;
-//			floatingDownwards = !floatingDownwards;
-//			floatTargetPosition.y += FLOAT_AMPLITUDE * (floatingDownwards ? -1 : 1);
-//		}
-//		position.lerp(floatTargetPosition,  deltaTime);
-//	}
-
-	/**
-	 * rocks bob up and down slightly (box2d version)
+	/**
+	 * add the left edge, middle, then right edge of a rock at its anchor to a sprite cache, the same quads render draws
+	 * the path offset is added when the cache is drawn
+	 * @param cache between beginCache and endCache
 	 */
-	@Override
-	public void update (float deltaTime)
+	public void cache (SpriteCache cache)
 	{
-		super.update(deltaTime);
+		TextureRegion reg = null;
 
-		floatCycleTimeLeft -= deltaTime;
-		if (floatCycleTimeLeft <= 0)
-		{
-			floatCycleTimeLeft = FLOAT_CYCLE_TIME;
-			floatingDownwards = !floatingDownwards;
-			body.setLinearVelocity(0, FLOAT_AMPLITUDE * (floatingDownwards ? -1 : 1));
-		} else
+		float relX = 0;
+		float relY = 0;
+
+		// left edge
+		reg = regEdge;
+		relX -= dimension.x / 4;
+		cache.add(reg.getTexture(), anchor.x + relX, anchor.y + relY, origin.x, origin.y,
+				dimension.x / 4, dimension.y, scale.x, scale.y, rotation, reg.getRegionX(), reg.getRegionY(),
+				reg.getRegionWidth(), reg.getRegionHeight(), false, false);
+
+		// middle
+		relX = 0;
+		reg = regMiddle;
+		for (int i = 0; i < length; i++)
 		{
-			body.setLinearVelocity(body.getLinearVelocity().scl(0.98f));
+			cache.add(reg.getTexture(), anchor.x + relX, anchor.y + relY, origin.x, origin.y,
+					dimension.x, dimension.y, scale.x, scale.y, rotation, reg.getRegionX(), reg.getRegionY(),
+					reg.getRegionWidth(), reg.getRegionHeight(), false, false);
+			relX += dimension.x;
 		}
+
+		// right edge
+		reg = regEdge;
+		cache.add(reg.getTexture(), anchor.x + relX, anchor.y + relY, origin.x + dimension.x / 8, origin.y,
+				dimension.x / 4, dimension.y, scale.x, scale.y, rotation, reg.getRegionX(), reg.getRegionY(),
+				reg.getRegionWidth(), reg.getRegionHeight(), true, false);
+	}
+
+	/**
+	 * rocks only age here, the level moves them along their paths with the level time
+	 */
+	@Override
+	public void update (float deltaTime)
+	{
+		stateTime += deltaTime;
+	}
+
+	/**
+	 * rocks follow their path, worked out from the level time alone, so every rock with the same path and phase
+	 * is at the same point of it however long it slept
+	 * the box2d body does not move the rock, the world controller moves the bodies after the rocks
+	 * @param deltaTime
+	 * @param time level time in seconds after the update
+	 */
+	public void update (float deltaTime, double time)
+	{
+		update(deltaTime);
+		pathTime = (float)((phase + time) % path.getDuration());
+		lastMove.set(position);
+		path.getOffset(pathTime, position);
+		position.add(anchor);
+		lastMove.sub(position).scl(-1);
 	}
 }
\ No newline at end of file
@@ -0,0 +1,75 @@
+package com.lashleygdx.game.world.objects;
+
+import com.badlogic.gdx.math.Interpolation;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+/**
+ * closed path for moving rocks: a rock glides from waypoint to waypoint, easing in and out of each one,
+ * and from the last waypoint back to the first
+ * the offset only depends on the time, so any number of rocks can share a path without keeping motion state
+ * @author Chris Lashley
+ */
+public class RockPath
+{
+	public static final String TAG = RockPath.class.getName();
+
+	// ids are handed out in order, so paths can be told apart and sorted
+	private static int nextId;
+
+	// x, y offsets from the rock anchor
+	private final float[] waypoints;
+	private final int numWaypoints;
+	private final float segmentTime;
+	private final int id;
+
+	/**
+	 * constructor
+	 * @param segmentTime seconds from one waypoint to the next
+	 * @param waypoints x, y offsets from the rock anchor
+	 */
+	public RockPath (float segmentTime, float... waypoints)
+	{
+		if (waypoints.length < 2 || waypoints.length % 2 != 0)
+			throw new GdxRuntimeException("Rock path needs x, y pairs of waypoints: " + waypoints.length);
+		this.segmentTime = segmentTime;
+		this.waypoints = waypoints;
+		numWaypoints = waypoints.length / 2;
+		id = nextId++;
+	}
+
+	/**
+	 * id no other path has
+	 * @return id
+	 */
+	public int getId ()
+	{
+		return id;
+	}
+
+	/**
+	 * time to follow the whole path once
+	 * @return duration in seconds
+	 */
+	public float getDuration ()
+	{
+		return numWaypoints * segmentTime;
+	}
+
+	/**
+	 * offset from the rock anchor at some time on the path
+	 * @param time seconds since the rock started on the path
+	 * @param offset set to the offset
+	 */
+	public void getOffset (float time, Vector2 offset)
+	{
+		float pathTime = time % getDuration();
+		if (pathTime < 0) pathTime += getDuration();
+		int segment = Math.min((int)(pathTime / segmentTime), numWaypoints - 1);
+		float alpha = Interpolation.sine.apply((pathTime - segment * segmentTime) / segmentTime);
+		int from = segment * 2;
+		int to = (segment + 1) % numWaypoints * 2;
+		offset.set(waypoints[from] + (waypoints[to] - waypoints[from]) * alpha,
+				waypoints[from + 1] + (waypoints[to + 1] - waypoints[from + 1]) * alpha);
+	}
+}
@@ -0,0 +1,123 @@
+package com.lashleygdx.game.desktop;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.math.RandomXS128;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Array;
+import com.lashleygdx.game.util.Constants;
+import com.lashleygdx.game.world.CollisionGrid;
+import com.lashleygdx.game.world.objects.GoldCoin;
+
+/**
+ * measures the per-frame cost of testing the player against 100 to 1000000 gold coins,
+ * through the collision grid and by scanning every coin like testCollisions used to
+ * @author Chris Lashley
+ */
+public class CollisionBenchmark extends DesktopTool
+{
+	private static final String TAG = CollisionBenchmark.class.getName();
+
+	private static final int MIN_COINS = 100;
+	private static final int MAX_COINS = 1000000;
+	// coins per level column, about the density of the level images
+	private static final int COINS_PER_COLUMN = 1;
+	private static final int ROWS = 32;
+	private static final long SEED = 1;
+	private static final int WARMUP_FRAMES = 10000;
+	private static final int FRAMES = 100000;
+	// scanning a million coins is slow, fewer frames are enough to measure it
+	private static final int SCAN_COINS_PER_FRAME = 100000000;
+
+	private final RandomXS128 random = new RandomXS128();
+	private final Rectangle player = new Rectangle();
+	private final Rectangle r = new Rectangle();
+	private final Array<GoldCoin> nearby = new Array<GoldCoin>();
+	// keeps the tests from being optimized away
+	private int hits;
+
+	public static void main (String[] arg)
+	{
+		launch(new CollisionBenchmark());
+	}
+
+	/**
+	 * add coins ten times over and time both collision tests at each count
+	 */
+	@Override
+	protected void run ()
+	{
+		random.setSeed(SEED);
+		Array<GoldCoin> goldCoins = new Array<GoldCoin>(MAX_COINS);
+		CollisionGrid<GoldCoin> grid = new CollisionGrid<GoldCoin>(Constants.COLLISION_CELL_WIDTH);
+		for (int numCoins = MIN_COINS; numCoins <= MAX_COINS; numCoins *= 10)
+		{
+			// coins of the smaller levels stay where they are, the level just gets wider
+			int width = numCoins / COINS_PER_COLUMN;
+			while (goldCoins.size < numCoins)
+			{
+				GoldCoin goldCoin = new GoldCoin();
+				goldCoin.position.set(random.nextInt(width), random.nextInt(ROWS) * goldCoin.dimension.y - 1.5f);
+				goldCoins.add(goldCoin);
+				grid.add(goldCoin);
+			}
+
+			for (int i = 0; i < WARMUP_FRAMES; i++)
+				testGrid(grid, width);
+			long start = System.nanoTime();
+			for (int i = 0; i < FRAMES; i++)
+				testGrid(grid, width);
+			long gridTime = (System.nanoTime() - start) / FRAMES;
+
+			int scanFrames = Math.max(10, Math.min(FRAMES, SCAN_COINS_PER_FRAME / numCoins));
+			for (int i = 0; i < scanFrames / 10; i++)
+				testScan(goldCoins, width);
+			start = System.nanoTime();
+			for (int i = 0; i < scanFrames; i++)
+				testScan(goldCoins, width);
+			long scanTime = (System.nanoTime() - start) / scanFrames;
+
+			Gdx.app.log(TAG, "coins<" + numCoins + "> grid<" + gridTime + " ns/frame> scan<" + scanTime +
+					" ns/frame> hits<" + hits + ">");
+		}
+	}
+
+	/**
+	 * move the player somewhere in the level
+	 * @param width level width
+	 */
+	private void placePlayer (int width)
+	{
+		player.set(random.nextFloat() * width, random.nextFloat() * ROWS - 3.0f, 1, 1);
+	}
+
+	/**
+	 * test the player against the coins in the grid cells it covers
+	 * @param grid
+	 * @param width level width
+	 */
+	private void testGrid (CollisionGrid<GoldCoin> grid, int width)
+	{
+		placePlayer(width);
+		grid.query(player.x, player.width, nearby);
+		for (GoldCoin goldCoin : nearby)
+		{
+			r.set(goldCoin.position.x, goldCoin.position.y, goldCoin.bounds.width, goldCoin.bounds.height);
+			if (r.overlaps(player)) hits++;
+		}
+	}
+
+	/**
+	 * test the player against every coin of the level
+	 * @param goldCoins
+	 * @param width level width
+	 */
+	private void testScan (Array<GoldCoin> goldCoins, int width)
+	{
+		placePlayer(width);
+		for (GoldCoin goldCoin : goldCoins)
+		{
+			r.set(goldCoin.position.x, goldCoin.position.y, goldCoin.bounds.width, goldCoin.bounds.height);
+			if (r.overlaps(player)) hits++;
+		}
+	}
+}
@@ -0,0 +1,70 @@
+package com.lashleygdx.game.desktop;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.backends.lwjgl.LwjglApplication;
+import com.badlogic.gdx.backends.lwjgl.LwjglApplicationConfiguration;
+import com.lashleygdx.game.world.Assets;
+
+/**
+ * desktop benchmarks, checks and level tools: opens a small window for the gl context, runs the tool once and quits
+ * tools that build level objects get the game assets first, they run from the core/assets directory like the
+ * DesktopLauncher
+ * @author Chris Lashley
+ */
+public abstract class DesktopTool extends ApplicationAdapter
+{
+	private final boolean loadAssets;
+
+	/**
+	 * constructor for tools that build level objects
+	 */
+	protected DesktopTool ()
+	{
+		this(true);
+	}
+
+	/**
+	 * constructor
+	 * @param loadAssets true to load the game assets before the tool runs and free them after
+	 */
+	protected DesktopTool (boolean loadAssets)
+	{
+		this.loadAssets = loadAssets;
+	}
+
+	/**
+	 * open the window of a tool, it runs as soon as the gl context exists
+	 * @param tool
+	 */
+	protected static void launch (DesktopTool tool)
+	{
+		LwjglApplicationConfiguration config = new LwjglApplicationConfiguration();
+		config.title = tool.getClass().getSimpleName();
+		config.width = 320;
+		config.height = 200;
+		// benchmarks measure the work, not the wait for the display
+		config.vSyncEnabled = false;
+
+		new LwjglApplication(tool, config);
+	}
+
+	/**
+	 * run the tool once the gl context exists, then quit
+	 */
+	@Override
+	public final void create ()
+	{
+		// level objects pull their textures from the assets
+		if (loadAssets) Assets.instance.init(new AssetManager());
+		run();
+		if (loadAssets) Assets.instance.dispose();
+		Gdx.app.exit();
+	}
+
+	/**
+	 * the work of the tool
+	 */
+	protected abstract void run ();
+}
@@ -0,0 +1,77 @@
+package com.lashleygdx.game.desktop;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.lashleygdx.game.world.Level;
+import com.lashleygdx.game.world.LevelData;
+import com.lashleygdx.game.world.LevelGenerator;
+
+/**
+ * measures level load time for generated level images from 128 to 1048576 columns wide,
+ * and the time to decode them on one thread and on all cores
+ * @author Chris Lashley
+ */
+public class LevelBenchmark extends DesktopTool
+{
+	private static final String TAG = LevelBenchmark.class.getName();
+
+	private static final int MIN_WIDTH = 128;
+	private static final int MAX_WIDTH = 1 << 20;
+	private static final int HEIGHT = 32;
+	private static final long SEED = 1;
+	private static final int WARMUP_RUNS = 3;
+	private static final int RUNS = 10;
+
+	public static void main (String[] arg)
+	{
+		launch(new LevelBenchmark());
+	}
+
+	/**
+	 * generate levels twice as wide each time and time loading and decoding them
+	 */
+	@Override
+	protected void run ()
+	{
+		int cores = Runtime.getRuntime().availableProcessors();
+		LevelGenerator generator = new LevelGenerator(SEED);
+		generator.height = HEIGHT;
+		for (int width = MIN_WIDTH; width <= MAX_WIDTH; width *= 2)
+		{
+			generator.width = width;
+			Pixmap pixmap = generator.generatePixmap();
+			for (int i = 0; i < WARMUP_RUNS; i++)
+				new Level(pixmap);
+
+			long start = System.nanoTime();
+			Level level = null;
+			for (int i = 0; i < RUNS; i++)
+				level = new Level(pixmap);
+			long avg = (System.nanoTime() - start) / RUNS;
+			long sequential = decodeTime(pixmap, 1);
+			long parallel = decodeTime(pixmap, cores);
+
+			Gdx.app.log(TAG, "width<" + width + "> rocks<" + level.rocks.size + "> coins<" + level.goldCoins.size +
+					"> feathers<" + level.feathers.size + "> load<" + (avg / 1000) + " us> decode<" + (sequential / 1000) +
+					" us> decode " + cores + " bands<" + (parallel / 1000) + " us>");
+			pixmap.dispose();
+		}
+	}
+
+	/**
+	 * average time to decode a level image
+	 * @param pixmap
+	 * @param numBands
+	 * @return nanoseconds
+	 */
+	private static long decodeTime (Pixmap pixmap, int numBands)
+	{
+		for (int i = 0; i < WARMUP_RUNS; i++)
+			LevelData.fromPixmap(pixmap, 0, numBands);
+
+		long start = System.nanoTime();
+		for (int i = 0; i < RUNS; i++)
+			LevelData.fromPixmap(pixmap, 0, numBands);
+		return (System.nanoTime() - start) / RUNS;
+	}
+}
@@ -0,0 +1,51 @@
+package com.lashleygdx.game.desktop;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.lashleygdx.game.world.LevelData;
+
+/**
+ * compiles every level image in the level folder into the binary level format
+ * run from the desktop directory like the TextureBuilder
+ * @author Chris Lashley
+ */
+public class LevelCompiler extends DesktopTool
+{
+	private static final String TAG = LevelCompiler.class.getName();
+
+	private static final String LEVEL_DIR = "../core/assets/levels";
+
+	/**
+	 * constructor, the compiler only reads level images and needs no game assets
+	 */
+	public LevelCompiler ()
+	{
+		super(false);
+	}
+
+	public static void main (String[] arg)
+	{
+		launch(new LevelCompiler());
+	}
+
+	/**
+	 * compile the levels
+	 */
+	@Override
+	protected void run ()
+	{
+		for (FileHandle source : Gdx.files.local(LEVEL_DIR).list(".png"))
+		{
+			byte[] bytes = source.readBytes();
+			Pixmap pixmap = new Pixmap(bytes, 0, bytes.length);
+			LevelData levelData = LevelData.fromPixmap(pixmap, LevelData.hash(bytes));
+			pixmap.dispose();
+
+			FileHandle compiled = LevelData.compiledFile(source);
+			levelData.write(compiled);
+			Gdx.app.log(TAG, source.name() + " -> " + compiled.name() + ": rocks<" + levelData.getRockCount() +
+					"> coins<" + levelData.getGoldCoinCount() + "> feathers<" + levelData.getFeatherCount() + ">");
+		}
+	}
+}
@@ -0,0 +1,263 @@
+package com.lashleygdx.game.desktop;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.assets.loaders.resolvers.InternalFileHandleResolver;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.PixmapIO;
+import com.badlogic.gdx.maps.MapObject;
+import com.badlogic.gdx.maps.MapProperties;
+import com.badlogic.gdx.maps.objects.EllipseMapObject;
+import com.badlogic.gdx.maps.objects.RectangleMapObject;
+import com.badlogic.gdx.maps.tiled.TiledMap;
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
+import com.badlogic.gdx.math.Ellipse;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.lashleygdx.game.util.Constants;
+import com.lashleygdx.game.world.Level;
+import com.lashleygdx.game.world.LevelData;
+import com.lashleygdx.game.world.LevelGenerator;
+import com.lashleygdx.game.world.LevelLoader;
+import com.lashleygdx.game.world.objects.AbstractGameObject;
+import com.lashleygdx.game.world.objects.Rock;
+
+/**
+ * checks that cut short and corrupt compiled levels are refused: loading the level image decodes it instead,
+ * and loading the compiled file fails with a message instead of reading past the records
+ * works in a temporary directory, then loads the Tiled test map through the level loader and checks that its rocks
+ * and items end up in the tiles they were drawn in
+ * @author Chris Lashley
+ */
+public class LevelDataCheck extends DesktopTool
+{
+	private static final String TAG = LevelDataCheck.class.getName();
+
+	private static final long SEED = 1;
+	private static final int WIDTH = 256;
+	private static final int HEIGHT = 32;
+	// header fields of the compiled format that the corrupt files change
+	private static final int OFFSET_VERSION = 4;
+	private static final int OFFSET_ROCK_COUNT = 24;
+	private static final int OFFSET_FEATHER_COUNT = 32;
+	private static final int HEADER_SIZE = 68;
+	private static final String TILED_MAP = "levels/tiled-test.tmx";
+
+	private int failures;
+
+	public static void main (String[] arg)
+	{
+		launch(new LevelDataCheck());
+	}
+
+	/**
+	 * run the checks and log how many failed
+	 */
+	@Override
+	protected void run ()
+	{
+		FileHandle dir = FileHandle.tempDirectory("LevelDataCheck");
+		FileHandle image = dir.child("level.png");
+		LevelGenerator generator = new LevelGenerator(SEED);
+		generator.width = WIDTH;
+		generator.height = HEIGHT;
+		Pixmap pixmap = generator.generatePixmap();
+		PixmapIO.writePNG(image, pixmap);
+		pixmap.dispose();
+
+		LevelData decoded = LevelData.load(image);
+		FileHandle compiled = LevelData.compiledFile(image);
+		decoded.write(compiled);
+		byte[] bytes = compiled.readBytes();
+
+		checkRefused("empty file", new byte[0], image, decoded);
+		checkRefused("cut inside the header", Arrays.copyOf(bytes, HEADER_SIZE - 1), image, decoded);
+		checkRefused("cut inside the records", Arrays.copyOf(bytes, bytes.length / 2), image, decoded);
+		checkRefused("last byte missing", Arrays.copyOf(bytes, bytes.length - 1), image, decoded);
+		checkRefused("wrong magic", corrupt(bytes, 0, 0), image, decoded);
+		checkRefused("wrong version", corrupt(bytes, OFFSET_VERSION, Integer.MAX_VALUE), image, decoded);
+		checkRefused("rock count too big", corrupt(bytes, OFFSET_ROCK_COUNT, Integer.MAX_VALUE), image, decoded);
+		checkRefused("negative feather count", corrupt(bytes, OFFSET_FEATHER_COUNT, -1), image, decoded);
+
+		// the intact file is used, last because it stays mapped
+		compiled.writeBytes(bytes, false);
+		check(matches(LevelData.load(compiled), decoded), "intact compiled level loads");
+
+		dir.deleteDirectory();
+
+		checkTiledMap();
+		Gdx.app.log(TAG, failures == 0 ? "all checks passed" : failures + " checks failed");
+	}
+
+	/**
+	 * write a broken compiled level next to the level image and load both
+	 * @param name what is wrong with the file
+	 * @param content compiled file content
+	 * @param image level image
+	 * @param decoded level decoded from the image
+	 */
+	private void checkRefused (String name, byte[] content, FileHandle image, LevelData decoded)
+	{
+		FileHandle compiled = LevelData.compiledFile(image);
+		compiled.writeBytes(content, false);
+		boolean decodedInstead = false;
+		try
+		{
+			decodedInstead = matches(LevelData.load(image), decoded);
+		} catch (RuntimeException e)
+		{
+			Gdx.app.error(TAG, name + ": loading the level image failed", e);
+		}
+		check(decodedInstead, name + ": level image decoded instead");
+
+		boolean refused = false;
+		try
+		{
+			LevelData.load(compiled);
+		} catch (GdxRuntimeException e)
+		{
+			refused = true;
+		} catch (RuntimeException e)
+		{
+			Gdx.app.error(TAG, name + ": loading the compiled level failed without a message", e);
+		}
+		check(refused, name + ": compiled level refused");
+	}
+
+	/**
+	 * load the Tiled test map like the game loads levels and compare where its rocks and items are
+	 * with the tiles of the map, as the world renderer draws them
+	 */
+	private void checkTiledMap ()
+	{
+		AssetManager assetManager = new AssetManager();
+		assetManager.setLoader(Level.class, new LevelLoader(new InternalFileHandleResolver()));
+		assetManager.load(TILED_MAP, Level.class);
+		assetManager.finishLoading();
+		Level level = assetManager.get(TILED_MAP, Level.class);
+		TiledMap map = level.getTiledMap();
+		check(map != null, "Tiled map loaded through the level loader");
+		MapProperties properties = map.getProperties();
+		float tileWidth = properties.get("tilewidth", Integer.class);
+		float tileHeight = properties.get("tileheight", Integer.class);
+
+		// every run of rock tiles is a rock standing on the bottom left corner of its first tile
+		TiledMapTileLayer rockLayer = (TiledMapTileLayer)map.getLayers().get(LevelData.TMX_ROCK_LAYER);
+		int runs = 0;
+		int placed = 0;
+		for (int y = 0; y < rockLayer.getHeight(); y++)
+			for (int x = 0; x < rockLayer.getWidth(); x++)
+			{
+				if (rockLayer.getCell(x, y) == null || (x > 0 && rockLayer.getCell(x - 1, y) != null)) continue;
+				runs++;
+				float worldX = x - level.getOriginX();
+				float worldY = Constants.TILED_MAP_BOTTOM + y * tileHeight / tileWidth;
+				for (Rock rock : level.rocks)
+					if (MathUtils.isEqual(rock.getAnchor().x, worldX) && MathUtils.isEqual(rock.getAnchor().y, worldY))
+						placed++;
+			}
+		check(runs > 0 && placed == runs, "rock tile runs<" + runs + "> rocks on their tiles<" + placed + ">");
+
+		// items are in the tile under the center of their map object
+		Array<MapObject> goldCoins = new Array<MapObject>();
+		Array<MapObject> feathers = new Array<MapObject>();
+		for (MapObject object : map.getLayers().get(LevelData.TMX_OBJECT_LAYER).getObjects())
+		{
+			String kind = object.getProperties().get("type", object.getName(), String.class);
+			if (Level.BLOCK_TYPE.ITEM_GOLD_COIN.name().equalsIgnoreCase(kind)) goldCoins.add(object);
+			if (Level.BLOCK_TYPE.ITEM_FEATHER.name().equalsIgnoreCase(kind)) feathers.add(object);
+		}
+		check(inTiles(level, level.goldCoins, goldCoins, tileWidth, tileHeight), "gold coins in their tiles");
+		check(inTiles(level, level.feathers, feathers, tileWidth, tileHeight), "feathers in their tiles");
+		assetManager.dispose();
+	}
+
+	/**
+	 * check that each level object has its center in the tile of the center of a map object
+	 * @param level
+	 * @param items level objects
+	 * @param objects map objects they were placed from
+	 * @param tileWidth
+	 * @param tileHeight
+	 * @return true if there are as many items as objects and all of them are in the right tiles
+	 */
+	private boolean inTiles (Level level, Array<? extends AbstractGameObject> items, Array<MapObject> objects,
+			float tileWidth, float tileHeight)
+	{
+		if (items.size != objects.size || items.size == 0) return false;
+		Rectangle bounds = new Rectangle();
+		for (AbstractGameObject item : items)
+		{
+			int column = MathUtils.floor(item.position.x + item.dimension.x / 2 + level.getOriginX());
+			int row = MathUtils.floor((item.position.y + item.dimension.y / 2 - Constants.TILED_MAP_BOTTOM)
+					/ (tileHeight / tileWidth));
+			boolean found = false;
+			for (MapObject object : objects)
+			{
+				if (object instanceof RectangleMapObject)
+					bounds.set(((RectangleMapObject)object).getRectangle());
+				else if (object instanceof EllipseMapObject)
+				{
+					Ellipse ellipse = ((EllipseMapObject)object).getEllipse();
+					bounds.set(ellipse.x, ellipse.y, ellipse.width, ellipse.height);
+				}
+				else
+					continue;
+				if (MathUtils.floor((bounds.x + bounds.width / 2) / tileWidth) == column
+						&& MathUtils.floor((bounds.y + bounds.height / 2) / tileHeight) == row)
+					found = true;
+			}
+			if (!found) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * copy a compiled level with one header field changed
+	 * @param bytes
+	 * @param offset
+	 * @param value
+	 * @return changed copy
+	 */
+	private byte[] corrupt (byte[] bytes, int offset, int value)
+	{
+		byte[] copy = Arrays.copyOf(bytes, bytes.length);
+		ByteBuffer.wrap(copy).putInt(offset, value);
+		return copy;
+	}
+
+	/**
+	 * compare the size and the records of two levels
+	 * @param a
+	 * @param b
+	 * @return true if they hold the same level
+	 */
+	private boolean matches (LevelData a, LevelData b)
+	{
+		if (a.getWidth() != b.getWidth() || a.getHeight() != b.getHeight() || a.getRockCount() != b.getRockCount()
+				|| a.getGoldCoinCount() != b.getGoldCoinCount() || a.getFeatherCount() != b.getFeatherCount())
+			return false;
+		for (int i = 0; i < a.getRockCount(); i++)
+			if (a.getRockX(i) != b.getRockX(i) || a.getRockRow(i) != b.getRockRow(i)
+					|| a.getRockLength(i) != b.getRockLength(i))
+				return false;
+		return true;
+	}
+
+	/**
+	 * log a check
+	 * @param passed
+	 * @param message
+	 */
+	private void check (boolean passed, String message)
+	{
+		if (!passed) failures++;
+		Gdx.app.log(TAG, (passed ? "ok " : "FAILED ") + message);
+	}
+}
\ No newline at end of file
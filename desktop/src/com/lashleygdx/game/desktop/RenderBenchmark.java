@@ -0,0 +1,189 @@
+package com.lashleygdx.game.desktop;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.math.RandomXS128;
+import com.lashleygdx.game.util.Constants;
+import com.lashleygdx.game.world.Level;
+import com.lashleygdx.game.world.LevelGenerator;
+import com.lashleygdx.game.world.RenderQueue;
+import com.lashleygdx.game.world.objects.Feather;
+import com.lashleygdx.game.world.objects.GoldCoin;
+import com.lashleygdx.game.world.objects.Rock;
+
+/**
+ * measures the per-frame cost of drawing the level objects of levels from 128 to 131072 columns wide,
+ * culled to the camera by Level.submit and drawn through a render queue, and drawing every object like Level.render used to
+ * render calls are the sprite batch flushes of a frame
+ * levels this wide are streamed in the game, here every object stays in the level so the level length is all that changes
+ * @author Chris Lashley
+ */
+public class RenderBenchmark extends DesktopTool
+{
+	private static final String TAG = RenderBenchmark.class.getName();
+
+	private static final int MIN_WIDTH = 128;
+	private static final int MAX_WIDTH = 1 << 17;
+	// level objects per level column, about the density of the level images
+	private static final float ROCKS_PER_COLUMN = 0.25f;
+	private static final float COINS_PER_COLUMN = 1.0f;
+	private static final float FEATHERS_PER_COLUMN = 0.03f;
+	private static final int ROWS = 16;
+	private static final long SEED = 1;
+	private static final int WARMUP_FRAMES = 200;
+	private static final int FRAMES = 2000;
+	// drawing every object of the widest levels is slow, fewer frames are enough to measure it
+	private static final int DRAW_ALL_OBJECTS_PER_RUN = 20000000;
+
+	private final RandomXS128 random = new RandomXS128();
+	private final RenderQueue queue = new RenderQueue();
+	private SpriteBatch batch;
+	private OrthographicCamera camera;
+
+	public static void main (String[] arg)
+	{
+		launch(new RenderBenchmark());
+	}
+
+	/**
+	 * fill one level wider and wider and time both ways of drawing it at each width
+	 */
+	@Override
+	protected void run ()
+	{
+		batch = new SpriteBatch();
+		// the world renderer keeps the viewport height and widens the viewport to the window
+		camera = new OrthographicCamera(Constants.VIEWPORT_HEIGHT * Gdx.graphics.getWidth() / Gdx.graphics.getHeight(),
+				Constants.VIEWPORT_HEIGHT);
+
+		random.setSeed(SEED);
+		// a small level for the player, goal and decoration, the benchmark adds the rocks and items
+		LevelGenerator generator = new LevelGenerator(SEED);
+		generator.width = MIN_WIDTH;
+		generator.height = ROWS;
+		Level level = new Level(generator.generate());
+		int filledWidth = 0;
+		for (int width = MIN_WIDTH; width <= MAX_WIDTH; width *= 4)
+		{
+			// objects of the shorter levels stay where they are, the level just gets longer
+			fill(level, filledWidth, width);
+			filledWidth = width;
+
+			for (int i = 0; i < WARMUP_FRAMES; i++)
+				renderCulled(level, width);
+			long start = System.nanoTime();
+			long numDrawn = 0;
+			long numCulled = 0;
+			long culledRenderCalls = 0;
+			for (int i = 0; i < FRAMES; i++)
+			{
+				renderCulled(level, width);
+				numDrawn += level.getNumDrawn();
+				numCulled += level.getNumCulled();
+				culledRenderCalls += queue.getRenderCalls();
+			}
+			long culledTime = (System.nanoTime() - start) / FRAMES;
+
+			int numObjects = level.rocks.size + level.goldCoins.size + level.feathers.size;
+			int allFrames = Math.max(10, Math.min(FRAMES, DRAW_ALL_OBJECTS_PER_RUN / numObjects));
+			for (int i = 0; i < allFrames / 10; i++)
+				renderAll(level, width);
+			start = System.nanoTime();
+			long allRenderCalls = 0;
+			for (int i = 0; i < allFrames; i++)
+			{
+				renderAll(level, width);
+				allRenderCalls += batch.renderCalls;
+			}
+			long allTime = (System.nanoTime() - start) / allFrames;
+
+			Gdx.app.log(TAG, "width<" + width + "> objects<" + numObjects + "> culled render<" + (culledTime / 1000) +
+					" us/frame> drawn<" + (numDrawn / FRAMES) + "> culled<" + (numCulled / FRAMES) + "> render calls<" +
+					(culledRenderCalls / FRAMES) + "> draw all<" + (allTime / 1000) + " us/frame> render calls<" +
+					(allRenderCalls / allFrames) + ">");
+		}
+		batch.dispose();
+	}
+
+	/**
+	 * add rocks and items to the columns of a level between two widths
+	 * @param level
+	 * @param fromX
+	 * @param toX
+	 */
+	private void fill (Level level, int fromX, int toX)
+	{
+		int width = toX - fromX;
+		for (int i = 0; i < width * ROCKS_PER_COLUMN; i++)
+		{
+			Rock rock = new Rock();
+			rock.setLength(1 + random.nextInt(3));
+			rock.setAnchor(fromX + random.nextInt(width), random.nextInt(ROWS) * rock.dimension.y / 2 - 2.5f);
+			level.rocks.add(rock);
+			level.rockGrid.add(rock);
+		}
+		for (int i = 0; i < width * COINS_PER_COLUMN; i++)
+		{
+			GoldCoin goldCoin = new GoldCoin();
+			goldCoin.position.set(fromX + random.nextInt(width), random.nextInt(ROWS) * goldCoin.dimension.y - 1.5f);
+			level.goldCoins.add(goldCoin);
+			level.goldCoinGrid.add(goldCoin);
+		}
+		for (int i = 0; i < width * FEATHERS_PER_COLUMN; i++)
+		{
+			Feather feather = new Feather();
+			feather.position.set(fromX + random.nextInt(width), random.nextInt(ROWS) * feather.dimension.y - 1.5f);
+			level.feathers.add(feather);
+			level.featherGrid.add(feather);
+		}
+	}
+
+	/**
+	 * move the camera somewhere in the level
+	 * @param width level width
+	 */
+	private void placeCamera (int width)
+	{
+		camera.position.set(random.nextFloat() * width, random.nextFloat() * 3.0f - 1.0f, 0);
+		camera.update();
+		batch.setProjectionMatrix(camera.combined);
+	}
+
+	/**
+	 * draw the level the camera sees
+	 * @param level
+	 * @param width level width
+	 */
+	private void renderCulled (Level level, int width)
+	{
+		placeCamera(width);
+		level.setView(camera);
+		level.submit(queue, true);
+		queue.render(batch);
+	}
+
+	/**
+	 * draw every rock and item of the level and the goal, with the decoration
+	 * @param level
+	 * @param width level width
+	 */
+	private void renderAll (Level level, int width)
+	{
+		placeCamera(width);
+		level.setView(camera);
+		batch.begin();
+		level.mountains.render(batch);
+		if (level.goal != null) level.goal.render(batch);
+		for (Rock rock : level.rocks)
+			rock.render(batch);
+		for (GoldCoin goldCoin : level.goldCoins)
+			goldCoin.render(batch);
+		for (Feather feather : level.feathers)
+			feather.render(batch);
+		level.bunnyHead.render(batch);
+		level.waterOverlay.render(batch);
+		level.clouds.render(batch);
+		batch.end();
+	}
+}
@@ -0,0 +1,120 @@
+package com.lashleygdx.game.desktop;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.math.Vector2;
+import com.lashleygdx.game.util.Constants;
+import com.lashleygdx.game.world.Level;
+import com.lashleygdx.game.world.LevelGenerator;
+import com.lashleygdx.game.world.objects.Rock;
+import com.lashleygdx.game.world.objects.RockPath;
+
+/**
+ * checks where moving rocks get their paths: endless levels get lifts from the generator, the same ones again
+ * after a reset, and a rock given its own path keeps it when its level restarts
+ * @author Chris Lashley
+ */
+public class RockPathCheck extends DesktopTool
+{
+	private static final String TAG = RockPathCheck.class.getName();
+
+	private static final long SEED = 1;
+	// columns the camera walks along the endless level
+	private static final int DISTANCE = 4096;
+	private static final float TICK = 1 / 60.0f;
+	private static final int TICKS = 100;
+
+	private final Vector2 cameraPosition = new Vector2();
+	private int failures;
+
+	public static void main (String[] arg)
+	{
+		launch(new RockPathCheck());
+	}
+
+	/**
+	 * run the checks and log how many failed
+	 */
+	@Override
+	protected void run ()
+	{
+		checkGeneratedPaths();
+		checkPathAfterReset();
+		Gdx.app.log(TAG, failures == 0 ? "all checks passed" : failures + " checks failed");
+	}
+
+	/**
+	 * walk an endless level and count its lifts, then reset it and compare the first chunks
+	 */
+	private void checkGeneratedPaths ()
+	{
+		LevelGenerator generator = new LevelGenerator(SEED);
+		generator.height = Constants.ENDLESS_LEVEL_HEIGHT;
+		Level level = new Level(generator);
+		RockPath bobbing = new Rock().getPath();
+
+		level.updateStreaming(cameraPosition.set(0, 0));
+		String start = describeLifts(level, bobbing);
+		int lifts = 0;
+		int rocks = 0;
+		for (int x = 0; x < DISTANCE; x += Constants.LEVEL_CHUNK_WIDTH)
+		{
+			level.updateStreaming(cameraPosition.set(x, 0));
+			for (Rock rock : level.rocks)
+			{
+				rocks++;
+				if (rock.getPath() != bobbing) lifts++;
+			}
+		}
+		check(lifts > 0, "generated lifts<" + lifts + "> of <" + rocks + "> streamed rocks");
+
+		level.reset();
+		level.updateStreaming(cameraPosition.set(0, 0));
+		String restart = describeLifts(level, bobbing);
+		check(start.equals(restart), "lifts at the start<" + start + "> after reset<" + restart + ">");
+		level.dispose();
+	}
+
+	/**
+	 * give a rock of a loaded level its own path and restart the level
+	 */
+	private void checkPathAfterReset ()
+	{
+		Level level = new Level(Gdx.files.internal(Constants.LEVEL_01));
+		RockPath path = new RockPath(1.0f, 0, 0, 1, 0);
+		Rock rock = level.rocks.first();
+		rock.setPath(path, 0.5f);
+		for (int i = 0; i < TICKS; i++)
+			level.update(TICK);
+
+		level.reset();
+		check(rock.getPath() == path && rock.getPhase() == 0.5f, "custom path kept after reset<" +
+				(rock.getPath() == path) + "> phase<" + rock.getPhase() + ">");
+		level.dispose();
+	}
+
+	/**
+	 * list where the lifts of a level are
+	 * @param level
+	 * @param bobbing path of rocks that aren't lifts
+	 * @return lift columns and rows
+	 */
+	private String describeLifts (Level level, RockPath bobbing)
+	{
+		StringBuilder lifts = new StringBuilder();
+		for (Rock rock : level.rocks)
+			if (rock.getPath() != bobbing)
+				lifts.append(' ').append(rock.getAnchor().x + level.getOriginX()).append(',').append(rock.getAnchor().y);
+		return lifts.toString();
+	}
+
+	/**
+	 * log a check
+	 * @param passed
+	 * @param message
+	 */
+	private void check (boolean passed, String message)
+	{
+		if (!passed) failures++;
+		Gdx.app.log(TAG, (passed ? "ok " : "FAILED ") + message);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,88 @@
+package com.lashleygdx.game.desktop;
+
+import java.lang.management.ManagementFactory;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Vector2;
+import com.lashleygdx.game.util.Constants;
+import com.lashleygdx.game.world.Level;
+import com.lashleygdx.game.world.LevelGenerator;
+
+/**
+ * measures the per-frame cost of an endless level streaming chunks in ahead of a running camera and recycling
+ * them behind it, and checks that frames don't allocate once the pools are warm
+ * the pools still grow (a new rock, coin or feather, or a longer array) whenever a stretch of the level needs more
+ * of something than any stretch before, which gets rarer the longer the level runs, any allocation in every frame
+ * shows up as at least a byte per frame
+ * the camera collects a gold coin now and then and moves the world origin like the game does
+ * allocations are counted per thread, which needs a HotSpot based jvm
+ * @author Chris Lashley
+ */
+public class StreamingBenchmark extends DesktopTool
+{
+	private static final String TAG = StreamingBenchmark.class.getName();
+
+	private static final long SEED = 1;
+	private static final float TICK = 1 / 60.0f;
+	// columns per frame, a fast run through the level
+	private static final float CAMERA_SPEED = 0.5f;
+	private static final int COLLECT_INTERVAL = 10;
+	private static final int WARMUP_FRAMES = 100000;
+	private static final int FRAMES = 1000000;
+
+	private final Vector2 cameraPosition = new Vector2();
+
+	public static void main (String[] arg)
+	{
+		launch(new StreamingBenchmark());
+	}
+
+	/**
+	 * warm the level up, then time and count the allocations of the measured frames
+	 */
+	@Override
+	protected void run ()
+	{
+		LevelGenerator generator = new LevelGenerator(SEED);
+		generator.height = Constants.ENDLESS_LEVEL_HEIGHT;
+		Level level = new Level(generator);
+		for (int i = 0; i < WARMUP_FRAMES; i++)
+			frame(level, i);
+
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+		long allocated = threads.getThreadAllocatedBytes(thread);
+		long start = System.nanoTime();
+		for (int i = 0; i < FRAMES; i++)
+			frame(level, i);
+		long time = (System.nanoTime() - start) / FRAMES;
+		allocated = threads.getThreadAllocatedBytes(thread) - allocated;
+
+		Gdx.app.log(TAG, "frames<" + FRAMES + "> column<" + (int)(cameraPosition.x + level.getOriginX()) + "> rocks<" +
+				level.rocks.size + "> coins<" + level.goldCoins.size + "> frame<" + time + " ns> allocated<" + allocated +
+				" bytes>");
+		if (allocated >= FRAMES) Gdx.app.error(TAG, "streaming allocates every frame: " + allocated + " bytes");
+		level.dispose();
+	}
+
+	/**
+	 * move the camera on, stream the level around it and update the level
+	 * @param level
+	 * @param frame
+	 */
+	private void frame (Level level, int frame)
+	{
+		cameraPosition.x += CAMERA_SPEED;
+		if (cameraPosition.x >= Constants.ORIGIN_SHIFT_DISTANCE)
+		{
+			int shiftX = MathUtils.floor(cameraPosition.x / Constants.LEVEL_CHUNK_WIDTH) * Constants.LEVEL_CHUNK_WIDTH;
+			level.shiftOrigin(shiftX);
+			cameraPosition.x -= shiftX;
+		}
+		level.updateStreaming(cameraPosition);
+		if (frame % COLLECT_INTERVAL == 0 && level.goldCoins.size > 0)
+			level.collectGoldCoin(level.goldCoins.first());
+		level.update(TICK);
+	}
+}
\ No newline at end of file